@@ -0,0 +1,19 @@
+package com.sky.constant;
+
+/**
+ * 缓存名称常量
+ */
+public class CacheConstant {
+
+    //菜品缓存的命名空间
+    public static final String DISH_NAMESPACE = "dish";
+
+    //本地缓存中菜品的 key 前缀
+    public static final String DISH_KEY_PREFIX = "dish_";
+
+    //套餐缓存
+    public static final String SETMEAL_CACHE = "setMealCache";
+
+    //整个菜单快照的命名空间
+    public static final String MENU_NAMESPACE = "menu";
+}
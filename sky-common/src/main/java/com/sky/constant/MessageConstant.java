@@ -14,6 +14,9 @@ public class MessageConstant {
     public static final String CATEGORY_BE_RELATED_BY_SETMEAL = "当前分类关联了套餐,不能删除";
     public static final String CATEGORY_BE_RELATED_BY_DISH = "当前分类关联了菜品,不能删除";
     public static final String SHOPPING_CART_IS_NULL = "购物车数据为空，不能下单";
+    public static final String SHOPPING_CART_ITEM_NOT_FOUND = "商品不存在";
+    public static final String SHOPPING_CART_OPERATION_INVALID = "购物车操作无效";
+    public static final String SHOPPING_CART_NUMBER_EXCEEDED = "单个商品的数量超过上限";
     public static final String ADDRESS_BOOK_IS_NULL = "用户地址为空，不能下单";
     public static final String LOGIN_FAILED = "登录失败";
     public static final String UPLOAD_FAILED = "文件上传失败";
@@ -24,5 +27,7 @@ public class MessageConstant {
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String ORDER_AMOUNT_CHANGED = "订单金额已变化，请刷新后重新下单";
+    public static final String PAGE_CURSOR_INVALID = "分页游标无效";
 
 }
@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache.namespace")
+@Data
+public class CacheNamespaceProperties {
+
+    /**
+     * 缓存条目的过期时间 (秒), 整个命名空间失效后, 旧版本的条目依靠过期时间回收
+     */
+    private long ttlSeconds = 3600;
+
+}
@@ -0,0 +1,27 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache.warm-up")
+@Data
+public class CacheWarmUpProperties {
+
+    /**
+     * 启动时是否预热菜单缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预热时同时加载的分类数量
+     */
+    private int parallelism = 4;
+
+    /**
+     * 预热最多等待的时间 (秒), 超时后不再等待, 应用照常启动
+     */
+    private long timeoutSeconds = 30;
+
+}
@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache.near")
+@Data
+public class NearCacheProperties {
+
+    /**
+     * 本地缓存最多保存的条目数
+     */
+    private long maximumSize = 1000;
+
+    /**
+     * 本地缓存写入后的过期时间 (秒), 即使没有收到失效通知, 过期后也会重新从 Redis 读取
+     */
+    private long expireAfterWriteSeconds = 60;
+
+}
@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-number")
+@Data
+public class OrderNumberProperties {
+
+    /**
+     * 当前实例的机器 id (0 ~ 1023), 多实例部署时每个实例必须不同
+     * 不配置时启动时从 Redis 中租用一个空闲的机器 id
+     */
+    private Long workerId;
+
+}
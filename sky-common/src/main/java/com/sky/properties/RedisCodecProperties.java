@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.redis")
+@Data
+public class RedisCodecProperties {
+
+    /**
+     * Redis 值的序列化方式: jackson (带类型信息的 Smile 二进制 json) 或 jdk (Java 原生序列化)
+     */
+    private String valueSerializer = "jackson";
+
+}
@@ -0,0 +1,32 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.shopping-cart")
+@Data
+public class ShoppingCartProperties {
+
+    /**
+     * 购物车的存储方式: redis (Redis 哈希, 异步同步到数据库) 或 mysql (直接读写数据库)
+     */
+    private String store = "redis";
+
+    /**
+     * Redis 中购物车的过期时间 (天), 每次修改购物车都会重新计时
+     */
+    private long ttlDays = 7;
+
+    /**
+     * 每次同步到数据库的最多用户数
+     */
+    private int syncBatchSize = 100;
+
+    /**
+     * 购物车超过多少天没有修改视为废弃, 由定时任务从数据库中删除; 必须大于 ttlDays, 否则启动失败
+     */
+    private long abandonDays = 30;
+
+}
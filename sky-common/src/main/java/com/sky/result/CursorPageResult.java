@@ -0,0 +1,29 @@
+package com.sky.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 封装游标分页查询结果
+ * 与 PageResult 不同, 翻页时传回 nextCursor 即可, 不需要页码, 每一页的查询代价相同
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResult implements Serializable {
+
+    private List records; //当前页数据集合
+
+    private String nextCursor; //下一页的游标, 没有下一页时为 null
+
+    private boolean hasMore; //是否还有下一页
+
+    private Long total; //总记录数, 只在第一页按需返回, 超过上限时为上限值
+
+}
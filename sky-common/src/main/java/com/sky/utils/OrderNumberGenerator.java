@@ -0,0 +1,14 @@
+package com.sky.utils;
+
+/**
+ * 订单号生成器
+ */
+public interface OrderNumberGenerator {
+
+    /**
+     * 生成一个新的订单号, 需保证全局唯一
+     *
+     * @return
+     */
+    String nextNumber();
+}
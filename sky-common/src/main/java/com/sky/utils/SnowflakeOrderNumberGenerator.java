@@ -0,0 +1,65 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于雪花算法的订单号生成器
+ * <p>
+ * 64 位 long: 1 位符号位 | 41 位毫秒时间戳 (相对 EPOCH) | 10 位机器 id | 12 位毫秒内序列号
+ * 同一毫秒内每台机器最多生成 4096 个订单号, 不同机器通过 workerId 区分, 按时间递增
+ * <p>
+ * 时间戳和序列号合并保存在一个 AtomicLong 中, 通过 CAS 更新, 不加锁也不访问数据库
+ * 当前毫秒的序列号用完, 或者系统时钟回拨时, 直接借用后面的毫秒继续递增, 不会生成重复的号码
+ */
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    //  起始时间 2023-01-01 00:00:00 (UTC+8)
+    public static final long EPOCH = 1672502400000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    private final long workerId;
+
+    //  高位为时间戳, 低 12 位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeOrderNumberGenerator(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 必须在 0 ~ " + MAX_WORKER_ID + " 之间: " + workerId);
+        }
+        this.workerId = workerId;
+    }
+
+    /**
+     * 生成订单号
+     *
+     * @return
+     */
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+    /**
+     * 生成雪花 id
+     *
+     * @return
+     */
+    public long nextId() {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            //  进入新的毫秒时序列号从 0 开始, 否则在上一个值的基础上加 1
+            //  序列号溢出时会自然进位到时间戳部分
+            next = now > current ? now : current + 1;
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 雪花订单号生成器: 多线程和多机器下生成的 id 不重复
+ */
+public class SnowflakeOrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long last = -1;
+                boolean increasing = true;
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    long id = generator.nextId();
+                    //  同一个线程内先后生成的 id 一定递增
+                    increasing &= id > last;
+                    last = id;
+                    ids.add(id);
+                }
+                return increasing;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        //  所有线程生成的 id 都不重复
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    public void differentWorkersNeverCollide() {
+        SnowflakeOrderNumberGenerator first = new SnowflakeOrderNumberGenerator(1);
+        SnowflakeOrderNumberGenerator second = new SnowflakeOrderNumberGenerator(2);
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10_000; i++) {
+            numbers.add(first.nextNumber());
+            numbers.add(second.nextNumber());
+        }
+        assertEquals(20_000, numbers.size());
+    }
+
+    @Test
+    public void rejectsWorkerIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeOrderNumberGenerator(SnowflakeOrderNumberGenerator.MAX_WORKER_ID + 1));
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DailyOrderStatisticsDTO implements Serializable {
+    //日期
+    private LocalDate date;
+
+    //当天订单总数
+    private Integer orderCount;
+
+    //当天有效订单数
+    private Integer validOrderCount;
+
+    //当天营业额
+    private Double turnover;
+}
@@ -17,6 +17,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private  String phone;
 
+    //默认订单号和手机号按包含匹配; 为 true 时走索引 (需先执行 db/orders_search_index.sql):
+    //订单号前缀匹配, 完整手机号精确匹配, 不完整的手机号按尾号匹配
+    private Boolean indexed;
+
     private Integer status;
 
     @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -27,4 +31,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页: 上一页返回的 nextCursor, 第一页不传
+    private String cursor;
+
+    //游标分页: 第一页是否需要返回总记录数
+    private Boolean withTotal;
+
 }
@@ -0,0 +1,22 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class ShoppingCartOperationDTO implements Serializable {
+
+    //  操作类型: add 加购, sub 减购, set 设置数量
+    public static final String ADD = "add";
+    public static final String SUB = "sub";
+    public static final String SET = "set";
+
+    private String type;
+    private Long dishId;
+    private Long setmealId;
+    private String dishFlavor;
+    //  add / sub 时为数量的变化, 默认为 1; set 时为修改后的数量, 0 表示删除
+    private Integer number;
+
+}
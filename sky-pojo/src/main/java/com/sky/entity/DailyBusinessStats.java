@@ -0,0 +1,40 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日营业数据汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计日期
+    private LocalDate statDate;
+
+    //当天订单总数
+    private Integer orderCount;
+
+    //当天有效订单数 (已完成)
+    private Integer validOrderCount;
+
+    //当天营业额 (已完成订单金额)
+    private Double turnover;
+
+    //当天新增用户数
+    private Integer newUsers;
+
+    //最后更新时间
+    private LocalDateTime updateTime;
+}
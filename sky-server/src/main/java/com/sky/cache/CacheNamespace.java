@@ -0,0 +1,101 @@
+package com.sky.cache;
+
+import com.sky.properties.CacheNamespaceProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 带版本号的缓存命名空间
+ * <p>
+ * 每个命名空间在 Redis 中维护一个版本号 cache:gen:命名空间, 缓存 key 的格式为 命名空间:v版本号:id
+ * 清空整个命名空间时只需要将版本号加一, 不再使用 KEYS 扫描整个 Redis,
+ * 旧版本的条目不会再被读取, 依靠过期时间自动回收
+ */
+@Component
+public class CacheNamespace {
+
+    private static final String GENERATION_KEY_PREFIX = "cache:gen:";
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private CacheNamespaceProperties cacheNamespaceProperties;
+
+    /**
+     * 查询命名空间当前的版本号, 从未清空过时为 0
+     *
+     * @param namespace
+     * @return
+     */
+    public long generation(String namespace) {
+        String generation = stringRedisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + namespace);
+        return generation == null ? 0 : Long.parseLong(generation);
+    }
+
+    /**
+     * 命名空间当前版本的 key 前缀, 例如 dish:v3:
+     *
+     * @param namespace
+     * @return
+     */
+    public String prefix(String namespace) {
+        return namespace + ":v" + generation(namespace) + ":";
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param namespace
+     * @param id
+     * @return
+     */
+    public Object get(String namespace, Object id) {
+        return redisTemplate.opsForValue().get(prefix(namespace) + id);
+    }
+
+    /**
+     * 写入缓存, 带过期时间
+     *
+     * @param namespace
+     * @param id
+     * @param value
+     */
+    public void put(String namespace, Object id, Object value) {
+        redisTemplate.opsForValue().set(prefix(namespace) + id, value, ttl());
+    }
+
+    /**
+     * 删除当前版本中的一个条目
+     *
+     * @param namespace
+     * @param id
+     */
+    public void evict(String namespace, Object id) {
+        redisTemplate.delete(prefix(namespace) + id);
+    }
+
+    /**
+     * 清空整个命名空间: 版本号加一
+     *
+     * @param namespace
+     * @return 新的版本号
+     */
+    public long invalidateAll(String namespace) {
+        return stringRedisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + namespace);
+    }
+
+    /**
+     * 缓存条目的过期时间
+     *
+     * @return
+     */
+    public Duration ttl() {
+        return Duration.ofSeconds(cacheNamespaceProperties.getTtlSeconds());
+    }
+}
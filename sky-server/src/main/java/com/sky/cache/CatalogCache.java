@@ -0,0 +1,108 @@
+package com.sky.cache;
+
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 菜品和套餐的进程内缓存, 按 id 查询, 供购物车和订单明细读取名称, 图片, 单价
+ * <p>
+ * 数据保存在本地缓存 (NearCache) 中, key 为 catalog:dish:id 和 catalog:setmeal:id,
+ * 管理端修改菜品或套餐后通过 Redis 发布订阅通知所有实例清除
+ * 返回的对象为缓存中的共享实例, 调用方不能修改
+ */
+@Component
+public class CatalogCache {
+
+    private static final String DISH_PREFIX = "catalog:dish:";
+    private static final String SETMEAL_PREFIX = "catalog:setmeal:";
+
+    @Autowired
+    private NearCache nearCache;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+
+    /**
+     * 根据 id 查询菜品, 不存在时返回 null
+     *
+     * @param id
+     * @return
+     */
+    public Dish getDish(Long id) {
+        String key = DISH_PREFIX + id;
+        Dish dish = (Dish) nearCache.get(key);
+        if (dish == null) {
+            dish = dishMapper.getById(id);
+            if (dish != null) {
+                nearCache.put(key, dish);
+            }
+        }
+        return dish;
+    }
+
+    /**
+     * 根据 id 查询套餐, 不存在时返回 null
+     *
+     * @param id
+     * @return
+     */
+    public Setmeal getSetmeal(Long id) {
+        String key = SETMEAL_PREFIX + id;
+        Setmeal setmeal = (Setmeal) nearCache.get(key);
+        if (setmeal == null) {
+            setmeal = setmealMapper.getById(id);
+            if (setmeal != null) {
+                nearCache.put(key, setmeal);
+            }
+        }
+        return setmeal;
+    }
+
+    /**
+     * 用菜品或套餐当前的名称, 图片, 单价更新购物车商品
+     * 购物车中保存的是加入时的商品信息, 展示和下单前都要以当前数据为准
+     *
+     * @param shoppingCart
+     * @return 菜品或套餐已被删除时返回 false, 购物车商品保持不变
+     */
+    public boolean refreshCartItem(ShoppingCart shoppingCart) {
+        if (shoppingCart.getDishId() != null) {
+            Dish dish = getDish(shoppingCart.getDishId());
+            if (dish == null) {
+                return false;
+            }
+            shoppingCart.setName(dish.getName());
+            shoppingCart.setImage(dish.getImage());
+            shoppingCart.setAmount(dish.getPrice());
+        } else {
+            Setmeal setmeal = getSetmeal(shoppingCart.getSetmealId());
+            if (setmeal == null) {
+                return false;
+            }
+            shoppingCart.setName(setmeal.getName());
+            shoppingCart.setImage(setmeal.getImage());
+            shoppingCart.setAmount(setmeal.getPrice());
+        }
+        return true;
+    }
+
+    /**
+     * 菜品发生修改, 清除所有实例中缓存的菜品
+     */
+    public void invalidateDishes() {
+        nearCache.invalidate(DISH_PREFIX + "*");
+    }
+
+    /**
+     * 套餐发生修改, 清除所有实例中缓存的套餐
+     */
+    public void invalidateSetmeals() {
+        nearCache.invalidate(SETMEAL_PREFIX + "*");
+    }
+}
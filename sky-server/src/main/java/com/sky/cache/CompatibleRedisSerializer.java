@@ -0,0 +1,45 @@
+package com.sky.cache;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 兼容旧数据的 Redis 值序列化器
+ * <p>
+ * 写入时使用配置的序列化器; 读取时如果数据是 Java 原生序列化的 (以 0xACED 开头),
+ * 则使用 JDK 序列化器解析, 如果是 json 文本 (以 { 或 [ 开头), 则使用 json 序列化器解析,
+ * 切换序列化方式后 Redis 中已有的数据仍然可以读取
+ */
+public class CompatibleRedisSerializer implements RedisSerializer<Object> {
+
+    //  Java 原生序列化数据的开头两个字节
+    private static final byte JDK_MAGIC_0 = (byte) 0xAC;
+    private static final byte JDK_MAGIC_1 = (byte) 0xED;
+
+    private final RedisSerializer<Object> serializer;
+    private final RedisSerializer<Object> jsonSerializer;
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public CompatibleRedisSerializer(RedisSerializer<Object> serializer, RedisSerializer<Object> jsonSerializer) {
+        this.serializer = serializer;
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    public byte[] serialize(Object value) throws SerializationException {
+        return serializer.serialize(value);
+    }
+
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length > 1 && bytes[0] == JDK_MAGIC_0 && bytes[1] == JDK_MAGIC_1) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[0] == '{' || bytes[0] == '[') {
+            return jsonSerializer.deserialize(bytes);
+        }
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,94 @@
+package com.sky.cache;
+
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Dish;
+import com.sky.service.DishService;
+import com.sky.vo.DishVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 用户端按分类查询菜品的缓存, 读取顺序为 本地缓存 -> Redis -> 数据库
+ */
+@Component
+public class DishCache {
+
+    @Autowired
+    private DishService dishService;
+
+    @Autowired
+    private CacheNamespace cacheNamespace;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    /**
+     * 根据分类id查询起售中的菜品
+     *
+     * @param categoryId
+     * @return
+     */
+    public List<DishVO> list(Long categoryId) {
+
+        //  构造本地缓存的 key
+        String key = CacheConstant.DISH_KEY_PREFIX + categoryId;
+
+        //  先查本地缓存, 命中则不再访问 Redis
+        List<DishVO> list = (List<DishVO>) nearCache.get(key);
+        if (list != null) {
+            return list;
+        }
+
+        //  再从 Redis 中查询数据, 看是否存在
+        list = (List<DishVO>) cacheNamespace.get(CacheConstant.DISH_NAMESPACE, categoryId);
+
+        if (list != null && list.size() > 0) {
+            //  数据已经在缓存中了, 放入本地缓存后返回
+            nearCache.put(key, list);
+            return list;
+        }
+
+        //  数据不在缓存中, 从数据库中查询
+        //  同一分类同时只有一个请求查询数据库, 其他请求等待其结果
+        list = singleFlight.execute(key,
+                () -> (List<DishVO>) cacheNamespace.get(CacheConstant.DISH_NAMESPACE, categoryId),
+                () -> loadFromDatabase(categoryId));
+        nearCache.put(key, list);
+
+        return list;
+    }
+
+    /**
+     * 从数据库中查询分类下起售中的菜品, 并加入缓存
+     *
+     * @param categoryId
+     * @return
+     */
+    private List<DishVO> loadFromDatabase(Long categoryId) {
+        Dish dish = new Dish();
+        dish.setCategoryId(categoryId);
+        //查询起售中的菜品
+        dish.setStatus(StatusConstant.ENABLE);
+
+        /*
+            这里既然是通过分类 id 查询菜品, 那么为什么不直接传输一个 id? 而是要创建一个对象?
+            答: 这样做代码逻辑更规范, 方便后续开发
+                1. 我们查询菜品, 是不是菜品需要起售?
+                2. 有时候我们是不是还会通过 name 进行模糊查询?
+                我们这样做, 就是为了根据 dish 里面的 status, name, categoryId 来查询菜品
+                也就是这一个接口做了很多事情, 后续方便复用
+         */
+        List<DishVO> list = dishService.listWithFlavor(dish);
+
+        //  将数据加入缓存
+        cacheNamespace.put(CacheConstant.DISH_NAMESPACE, categoryId, list);
+
+        return list;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sky.cache;
+
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import com.sky.mapper.CategoryMapper;
+import com.sky.properties.CacheWarmUpProperties;
+import com.sky.result.Result;
+import com.sky.service.MenuService;
+import com.sky.service.SetMealService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动时预热菜单缓存: 所有启用分类的菜品, 套餐, 以及整个菜单的快照
+ * <p>
+ * 作为 SmartLifecycle 在内嵌 web 服务器启动之前执行, 预热完成 (或超时) 后 web 服务器才开始接收请求,
+ * 第一批用户请求不会全部打到数据库
+ */
+@Component
+@Slf4j
+public class MenuCacheWarmer implements SmartLifecycle {
+
+    //  内嵌 web 服务器在 Integer.MAX_VALUE - 1 阶段启动, 预热需要在它之前完成
+    private static final int PHASE = Integer.MAX_VALUE - 2;
+
+    //  分类类型: 1 菜品分类, 2 套餐分类
+    private static final Integer DISH_CATEGORY = 1;
+    private static final Integer SETMEAL_CATEGORY = 2;
+
+    @Autowired
+    private CacheWarmUpProperties cacheWarmUpProperties;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private DishCache dishCache;
+    @Autowired
+    private SetMealService setMealService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MenuService menuService;
+
+    private volatile boolean running;
+
+    public void start() {
+        running = true;
+        if (!cacheWarmUpProperties.isEnabled()) {
+            return;
+        }
+        try {
+            warmUpAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void warmUpAll() throws InterruptedException {
+
+        long start = System.currentTimeMillis();
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        //  同时加载的分类数量有限, 避免预热本身占满数据库连接
+        ExecutorService executor = Executors.newFixedThreadPool(cacheWarmUpProperties.getParallelism());
+        try {
+            for (Category category : categoryMapper.list(DISH_CATEGORY)) {
+                executor.execute(() -> warmUp(category, loaded, failed, () -> dishCache.list(category.getId())));
+            }
+
+            Cache setmealCache = cacheManager.getCache(CacheConstant.SETMEAL_CACHE);
+            for (Category category : categoryMapper.list(SETMEAL_CATEGORY)) {
+                //  缓存的值与用户端 SetmealController.list 的返回值一致
+                executor.execute(() -> warmUp(category, loaded, failed,
+                        () -> setmealCache.get(category.getId(), () -> Result.success(listSetmeal(category.getId())))));
+            }
+
+            executor.execute(() -> warmUp(null, loaded, failed, () -> menuService.getSnapshot()));
+        } finally {
+            executor.shutdown();
+        }
+
+        if (!executor.awaitTermination(cacheWarmUpProperties.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+            log.warn("菜单缓存预热超时, 剩余任务在后台继续执行");
+        }
+
+        log.info("菜单缓存预热完成: 成功 {} 项, 失败 {} 项, 耗时 {} ms",
+                loaded.get(), failed.get(), System.currentTimeMillis() - start);
+    }
+
+    private void warmUp(Category category, AtomicInteger loaded, AtomicInteger failed, Runnable task) {
+        try {
+            task.run();
+            loaded.incrementAndGet();
+        } catch (RuntimeException e) {
+            //  预热失败不影响启动, 首次请求时会再加载
+            failed.incrementAndGet();
+            log.warn("菜单缓存预热失败: {}", category == null ? "menu" : category.getName(), e);
+        }
+    }
+
+    private List<Setmeal> listSetmeal(Long categoryId) {
+        Setmeal setmeal = new Setmeal();
+        setmeal.setCategoryId(categoryId);
+        setmeal.setStatus(StatusConstant.ENABLE);
+        return setMealService.list(setmeal);
+    }
+}
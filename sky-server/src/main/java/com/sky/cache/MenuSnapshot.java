@@ -0,0 +1,25 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 整个菜单的预生成快照
+ * 同时保存 json 原文和 gzip 压缩后的字节, 请求时直接写出, 不再查询和序列化
+ */
+@Getter
+@AllArgsConstructor
+public class MenuSnapshot {
+
+    //  生成快照时菜单命名空间的版本号
+    private final long generation;
+
+    //  快照内容的摘要, 作为 http ETag
+    private final String etag;
+
+    //  json 原文
+    private final byte[] json;
+
+    //  gzip 压缩后的 json
+    private final byte[] gzip;
+}
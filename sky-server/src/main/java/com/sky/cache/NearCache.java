@@ -0,0 +1,127 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sky.properties.NearCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 菜单数据的进程内缓存 (一级缓存), 位于 Redis (二级缓存) 之前
+ * <p>
+ * key 与 Redis 中的 key 保持一致, 例如 dish_1, setMealCache::1
+ * 管理端修改菜品或套餐后, 通过 Redis 发布订阅通知所有实例清除本地缓存
+ * 失效消息为具体的 key, 以 * 结尾时按前缀清除
+ */
+@Component
+@Slf4j
+public class NearCache implements MessageListener {
+
+    //  缓存失效通知频道
+    public static final String INVALIDATE_CHANNEL = "cache:near:invalidate";
+
+    @Autowired
+    private NearCacheProperties nearCacheProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Cache<String, Object> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(nearCacheProperties.getMaximumSize())
+                .expireAfterWrite(nearCacheProperties.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取本地缓存, 不存在时返回 null
+     *
+     * @param key
+     * @return
+     */
+    public Object get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 写入本地缓存
+     *
+     * @param key
+     * @param value
+     */
+    public void put(String key, Object value) {
+        cache.put(key, value);
+    }
+
+    /**
+     * 清除本实例的本地缓存, 并通知其他实例清除
+     *
+     * @param pattern 具体的 key, 或以 * 结尾的前缀
+     */
+    public void invalidate(String pattern) {
+        evictLocal(pattern);
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, pattern);
+    }
+
+    /**
+     * 收到其他实例 (包括自己) 的失效通知
+     *
+     * @param message
+     * @param pattern
+     */
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("收到本地缓存失效通知: {}", key);
+        evictLocal(key);
+    }
+
+    /**
+     * 本地缓存统计, 包括命中率和当前条目数
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 当前条目数
+     *
+     * @return
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 定期输出本地缓存的命中情况
+     */
+    @Scheduled(cron = "0 0/5 * * * ?")
+    public void logStats() {
+        CacheStats stats = cache.stats();
+        log.info("本地菜单缓存: size = {}, hitRate = {}, hits = {}, misses = {}, evictions = {}",
+                size(), stats.hitRate(), stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    private void evictLocal(String pattern) {
+        if (pattern.endsWith("*")) {
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        } else {
+            cache.invalidate(pattern);
+        }
+    }
+}
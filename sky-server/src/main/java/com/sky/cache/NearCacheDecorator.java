@@ -0,0 +1,102 @@
+package com.sky.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 带本地缓存的 Spring Cache, 读取顺序为 本地缓存 -> Redis, 修改时通知所有实例清除本地缓存
+ * 本地缓存中的 key 为: 缓存名::key
+ */
+public class NearCacheDecorator implements Cache {
+
+    private final Cache target;
+    private final NearCache nearCache;
+    private final CacheNamespace cacheNamespace;
+    private final SingleFlight singleFlight;
+
+    public NearCacheDecorator(Cache target, NearCache nearCache, CacheNamespace cacheNamespace,
+                              SingleFlight singleFlight) {
+        this.target = target;
+        this.nearCache = nearCache;
+        this.cacheNamespace = cacheNamespace;
+        this.singleFlight = singleFlight;
+    }
+
+    public String getName() {
+        return target.getName();
+    }
+
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    public ValueWrapper get(Object key) {
+        String nearKey = nearKey(key);
+        Object value = nearCache.get(nearKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+
+        ValueWrapper wrapper = target.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            nearCache.put(nearKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        return wrapper == null ? null : type.cast(wrapper.get());
+    }
+
+    /**
+     * @Cacheable(sync = true) 使用该方法, 缓存未命中时同一个 key 只有一个加载者查询数据库
+     */
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        return singleFlight.execute(nearKey(key),
+                () -> {
+                    ValueWrapper cached = get(key);
+                    return cached == null ? null : (T) cached.get();
+                },
+                () -> {
+                    T value;
+                    try {
+                        value = valueLoader.call();
+                    } catch (Exception e) {
+                        throw new ValueRetrievalException(key, valueLoader, e);
+                    }
+                    put(key, value);
+                    return value;
+                });
+    }
+
+    public void put(Object key, Object value) {
+        target.put(key, value);
+        if (value != null) {
+            nearCache.put(nearKey(key), value);
+        }
+    }
+
+    public void evict(Object key) {
+        target.evict(key);
+        nearCache.invalidate(nearKey(key));
+    }
+
+    /**
+     * 清空整个缓存: Redis 中的 key 带有命名空间版本号, 版本号加一即可, 不再扫描删除
+     */
+    public void clear() {
+        cacheNamespace.invalidateAll(getName());
+        nearCache.invalidate(getName() + "::*");
+    }
+
+    private String nearKey(Object key) {
+        return getName() + "::" + key;
+    }
+}
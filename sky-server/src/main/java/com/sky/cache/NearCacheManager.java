@@ -0,0 +1,39 @@
+package com.sky.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 在 Redis 缓存管理器之前加一层本地缓存, @Cacheable 等注解读取时优先命中本地缓存
+ */
+public class NearCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final NearCache nearCache;
+    private final CacheNamespace cacheNamespace;
+    private final SingleFlight singleFlight;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public NearCacheManager(CacheManager delegate, NearCache nearCache, CacheNamespace cacheNamespace,
+                            SingleFlight singleFlight) {
+        this.delegate = delegate;
+        this.nearCache = nearCache;
+        this.cacheNamespace = cacheNamespace;
+        this.singleFlight = singleFlight;
+    }
+
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, n -> {
+            Cache target = delegate.getCache(n);
+            return target == null ? null : new NearCacheDecorator(target, nearCache, cacheNamespace, singleFlight);
+        });
+    }
+
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
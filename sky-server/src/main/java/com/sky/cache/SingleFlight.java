@@ -0,0 +1,119 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 缓存加载的合并执行, 防止缓存失效时大量请求同时查询数据库
+ * <p>
+ * 1. 同一实例内, 同一个 key 同时只有一个线程执行加载, 其他线程等待它的结果
+ * 2. 多个实例之间, 通过 Redis 中的短期租约保证只有一个实例执行加载,
+ * 没有拿到租约的实例轮询缓存, 直到加载完成或租约过期
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+    private static final String LEASE_KEY_PREFIX = "cache:lease:";
+
+    //  租约的有效时间, 超过该时间加载仍未完成, 其他实例会自行加载
+    private static final Duration LEASE_TIMEOUT = Duration.ofSeconds(3);
+
+    //  没有拿到租约时, 轮询缓存的间隔 (毫秒)
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    //  只有租约的持有者才能释放租约
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 合并执行缓存加载
+     *
+     * @param key         缓存 key
+     * @param cacheReader 读取缓存, 不存在时返回 null
+     * @param loader      查询数据库并写入缓存
+     * @return
+     */
+    public <T> T execute(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            //  已有线程在加载, 等待其结果
+            return (T) join(existing);
+        }
+
+        try {
+            T value = loadWithLease(key, cacheReader, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T loadWithLease(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        String leaseKey = LEASE_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, token, LEASE_TIMEOUT);
+
+        if (Boolean.TRUE.equals(acquired)) {
+            try {
+                //  拿到租约前可能已经有其他实例加载完成
+                T value = cacheReader.get();
+                return value != null ? value : loader.get();
+            } finally {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), token);
+            }
+        }
+
+        //  其他实例正在加载, 轮询缓存等待其结果
+        long deadline = System.currentTimeMillis() + LEASE_TIMEOUT.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            T value = cacheReader.get();
+            if (value != null) {
+                return value;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        log.warn("等待缓存加载超时, 自行加载: {}", key);
+        return loader.get();
+    }
+
+    private Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
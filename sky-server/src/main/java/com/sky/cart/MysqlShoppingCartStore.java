@@ -0,0 +1,116 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 直接读写数据库的购物车
+ * <p>
+ * 依赖 shopping_cart 上的唯一索引 uk_user_item, 加购是一条 insert ... on duplicate key update,
+ * 减购是一条带条件的 update, 只有最后一份时才再执行一条 delete, 并发点击不会产生重复记录或丢失修改
+ * 依赖的表结构在启动时由 ShoppingCartSchemaChecker 检查
+ */
+@Component
+@ConditionalOnProperty(name = "sky.shopping-cart.store", havingValue = "mysql")
+public class MysqlShoppingCartStore implements ShoppingCartStore {
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+
+    /**
+     * 查询用户的购物车
+     *
+     * @param userId
+     * @return
+     */
+    public List<ShoppingCart> list(Long userId) {
+        return shoppingCartMapper.list(ShoppingCart.builder().userId(userId).build());
+    }
+
+    /**
+     * 修改商品数量
+     *
+     * @param userId
+     * @param item
+     * @param delta
+     */
+    public void increment(Long userId, ShoppingCart item, int delta) {
+        applyAll(userId, Collections.singletonList(new ShoppingCartChange(item, false, delta)));
+    }
+
+    /**
+     * 批量修改购物车, 在一个事务中完成
+     * 加购和设置数量各合并为一条 insert ... on duplicate key update, 减购和删除逐个执行
+     *
+     * @param userId
+     * @param changes
+     */
+    @Transactional
+    public void applyAll(Long userId, List<ShoppingCartChange> changes) {
+        List<ShoppingCart> increments = new ArrayList<>();
+        List<ShoppingCart> numbers = new ArrayList<>();
+
+        for (ShoppingCartChange change : changes) {
+            ShoppingCart shoppingCart = new ShoppingCart();
+            BeanUtils.copyProperties(change.getItem(), shoppingCart);
+            shoppingCart.setUserId(userId);
+            int number = change.getNumber();
+
+            if (change.isAbsolute()) {
+                if (number > 0) {
+                    shoppingCart.setNumber(number);
+                    numbers.add(shoppingCart);
+                } else {
+                    shoppingCartMapper.deleteItem(shoppingCart);
+                }
+            } else if (number > 0) {
+                shoppingCart.setNumber(number);
+                increments.add(shoppingCart);
+            } else if (number < 0) {
+                //  数量不足以扣减时, 说明是最后一份, 删除该商品
+                if (shoppingCartMapper.decrementNumber(shoppingCart, -number) == 0) {
+                    shoppingCartMapper.deleteItem(shoppingCart);
+                }
+            }
+        }
+
+        if (!increments.isEmpty()) {
+            shoppingCartMapper.upsertBatch(increments);
+        }
+        if (!numbers.isEmpty()) {
+            shoppingCartMapper.setNumberBatch(numbers);
+        }
+    }
+
+    /**
+     * 批量加入商品
+     *
+     * @param userId
+     * @param items
+     */
+    public void addAll(Long userId, List<ShoppingCart> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        items.forEach(item -> item.setUserId(userId));
+        shoppingCartMapper.upsertBatch(items);
+    }
+
+    /**
+     * 清空购物车
+     *
+     * @param userId
+     */
+    public void clear(Long userId) {
+        shoppingCartMapper.deleteShoppingCart(ShoppingCart.builder().userId(userId).build());
+    }
+}
@@ -0,0 +1,320 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.ShoppingCartProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 哈希的购物车, 每个用户一个哈希 cart:用户id
+ * <p>
+ * 字段 n:商品 保存数量, 通过 HINCRBY 原子修改; 字段 i:商品 保存商品信息 (json); 字段 _ 表示购物车已从数据库加载
+ * 修改购物车时把用户 id 加入 cart:dirty 集合, 由 ShoppingCartSyncTask 批量写回数据库
+ * 同步时用户 id 从 cart:dirty 移到有序集合 cart:syncing (score 为领取时间), 写回成功后才移除,
+ * 实例在同步途中退出时, 超时的用户会被放回 cart:dirty, 修改不会丢失
+ * Redis 中没有某个用户的购物车时 (首次访问或已过期), 先从数据库加载
+ */
+@Component
+@ConditionalOnProperty(name = "sky.shopping-cart.store", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisShoppingCartStore implements ShoppingCartStore {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final String SYNCING_KEY = "cart:syncing";
+
+    private static final String NUMBER_PREFIX = "n:";
+    private static final String ITEM_PREFIX = "i:";
+    private static final String LOADED_FIELD = "_";
+
+    //  批量修改商品数量, 数量小于等于 0 时删除商品, 商品信息只在商品新加入时写入; 返回 -1 表示购物车还没有从数据库加载
+    //  KEYS: 购物车, 待同步集合
+    //  ARGV: 用户id, 过期时间 (秒), 然后每个商品 4 个参数: 商品, 方式 (s 设置数量 / d 数量变化), 数量, 商品信息 (可为空串)
+    private static final DefaultRedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+            "for i = 3, #ARGV, 4 do " +
+            "  local f = ARGV[i] " +
+            "  local n = tonumber(ARGV[i + 2]) " +
+            "  if ARGV[i + 1] == 's' then " +
+            "    if n > 0 then redis.call('hset', KEYS[1], 'n:' .. f, n) end " +
+            "  else " +
+            "    n = redis.call('hincrby', KEYS[1], 'n:' .. f, n) " +
+            "  end " +
+            "  if n <= 0 then " +
+            "    redis.call('hdel', KEYS[1], 'n:' .. f, 'i:' .. f) " +
+            "  elseif ARGV[i + 3] ~= '' then " +
+            "    redis.call('hsetnx', KEYS[1], 'i:' .. f, ARGV[i + 3]) " +
+            "  end " +
+            "end " +
+            "redis.call('expire', KEYS[1], ARGV[2]) " +
+            "redis.call('sadd', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    //  购物车不存在时写入从数据库加载的数据, 已存在时不做任何操作
+    //  ARGV: 过期时间 (秒), 字段1, 值1, 字段2, 值2 ...
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('expire', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    //  清空购物车, 保留加载标记, 避免下次访问又从数据库加载旧数据
+    private static final DefaultRedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1]) " +
+            "redis.call('hset', KEYS[1], '_', '1') " +
+            "redis.call('expire', KEYS[1], ARGV[2]) " +
+            "redis.call('sadd', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    //  从待同步集合中领取一批用户, 同时记入同步中集合
+    //  KEYS: 待同步集合, 同步中集合  ARGV: 数量, 当前时间 (毫秒)
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('spop', KEYS[1], ARGV[1]) " +
+            "for _, id in ipairs(ids) do redis.call('zadd', KEYS[2], ARGV[2], id) end " +
+            "return ids", List.class);
+
+    //  把领取时间早于 ARGV[1] 的用户放回待同步集合
+    //  KEYS: 待同步集合, 同步中集合
+    private static final DefaultRedisScript<Long> RECLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('zrangebyscore', KEYS[2], 0, ARGV[1]) " +
+            "for _, id in ipairs(ids) do " +
+            "  redis.call('sadd', KEYS[1], id) " +
+            "  redis.call('zrem', KEYS[2], id) " +
+            "end " +
+            "return #ids", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    /**
+     * 查询用户的购物车
+     *
+     * @param userId
+     * @return
+     */
+    public List<ShoppingCart> list(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key(userId));
+        if (entries.isEmpty()) {
+            load(userId);
+            entries = stringRedisTemplate.opsForHash().entries(key(userId));
+        }
+        return toShoppingCarts(userId, entries);
+    }
+
+    /**
+     * 修改商品数量
+     *
+     * @param userId
+     * @param item
+     * @param delta
+     */
+    public void increment(Long userId, ShoppingCart item, int delta) {
+        applyAll(userId, Collections.singletonList(new ShoppingCartChange(item, false, delta)));
+    }
+
+    /**
+     * 批量修改购物车, 在一个 Lua 脚本中完成, 原子生效
+     *
+     * @param userId
+     * @param changes
+     */
+    public void applyAll(Long userId, List<ShoppingCartChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = Arrays.asList(key(userId), DIRTY_KEY);
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(ttlSeconds());
+        for (ShoppingCartChange change : changes) {
+            ShoppingCart item = change.getItem();
+            args.add(ShoppingCartChange.itemKey(item));
+            args.add(change.isAbsolute() ? "s" : "d");
+            args.add(String.valueOf(change.getNumber()));
+            args.add(item.getName() == null ? "" : JSON.toJSONString(item));
+        }
+
+        Long result = stringRedisTemplate.execute(UPDATE_SCRIPT, keys, args.toArray());
+        if (result != null && result < 0) {
+            //  购物车还没有加载, 从数据库加载后重试
+            load(userId);
+            stringRedisTemplate.execute(UPDATE_SCRIPT, keys, args.toArray());
+        }
+    }
+
+    /**
+     * 批量加入商品
+     *
+     * @param userId
+     * @param items
+     */
+    public void addAll(Long userId, List<ShoppingCart> items) {
+        List<ShoppingCartChange> changes = new ArrayList<>();
+        for (ShoppingCart item : items) {
+            changes.add(new ShoppingCartChange(item, false, item.getNumber()));
+        }
+        applyAll(userId, changes);
+    }
+
+    /**
+     * 清空购物车
+     *
+     * @param userId
+     */
+    public void clear(Long userId) {
+        stringRedisTemplate.execute(CLEAR_SCRIPT, Arrays.asList(key(userId), DIRTY_KEY),
+                userId.toString(), ttlSeconds());
+    }
+
+    /**
+     * 将用户的购物车写回数据库, 由 ShoppingCartSyncTask 调用
+     *
+     * @param userId
+     */
+    @Transactional
+    public void syncToDatabase(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key(userId));
+        if (entries.isEmpty()) {
+            //  购物车已过期, 数据库中保存的是最后一次同步的数据
+            return;
+        }
+
+        List<ShoppingCart> shoppingCarts = toShoppingCarts(userId, entries);
+        shoppingCartMapper.deleteShoppingCart(ShoppingCart.builder().userId(userId).build());
+        if (!shoppingCarts.isEmpty()) {
+            shoppingCartMapper.insertBatch(shoppingCarts);
+        }
+    }
+
+    /**
+     * 领取一批待同步的用户, 写回数据库后需要调用 finishSync 或 releaseSync
+     *
+     * @param count 最多领取的数量
+     * @return 用户 id
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> claimDirtyUsers(int count) {
+        List<String> userIds = stringRedisTemplate.execute(CLAIM_SCRIPT, Arrays.asList(DIRTY_KEY, SYNCING_KEY),
+                String.valueOf(count), String.valueOf(System.currentTimeMillis()));
+        return userIds == null ? Collections.emptyList() : userIds;
+    }
+
+    /**
+     * 用户的购物车已经写回数据库
+     *
+     * @param userId
+     */
+    public void finishSync(String userId) {
+        stringRedisTemplate.opsForZSet().remove(SYNCING_KEY, userId);
+    }
+
+    /**
+     * 写回数据库失败, 放回待同步集合, 下次再同步
+     *
+     * @param userIds
+     */
+    public void releaseSync(List<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForSet().add(DIRTY_KEY, userIds.toArray(new String[0]));
+        stringRedisTemplate.opsForZSet().remove(SYNCING_KEY, userIds.toArray());
+    }
+
+    /**
+     * 领取后超过 timeoutMillis 仍未完成的用户 (同步途中实例退出), 放回待同步集合
+     *
+     * @param timeoutMillis
+     * @return 放回的用户数
+     */
+    public long reclaimStaleSyncs(long timeoutMillis) {
+        Long reclaimed = stringRedisTemplate.execute(RECLAIM_SCRIPT, Arrays.asList(DIRTY_KEY, SYNCING_KEY),
+                String.valueOf(System.currentTimeMillis() - timeoutMillis));
+        return reclaimed == null ? 0 : reclaimed;
+    }
+
+    /**
+     * 从数据库加载用户的购物车
+     *
+     * @param userId
+     */
+    private void load(Long userId) {
+        List<ShoppingCart> shoppingCarts = shoppingCartMapper.list(ShoppingCart.builder().userId(userId).build());
+
+        List<String> args = new ArrayList<>();
+        args.add(ttlSeconds());
+        args.add(LOADED_FIELD);
+        args.add("1");
+        for (ShoppingCart shoppingCart : shoppingCarts) {
+            String itemKey = ShoppingCartChange.itemKey(shoppingCart);
+            //  数据库中可能存在重复的记录, 合并数量
+            int index = args.indexOf(NUMBER_PREFIX + itemKey);
+            if (index > 0) {
+                int number = Integer.parseInt(args.get(index + 1)) + shoppingCart.getNumber();
+                args.set(index + 1, String.valueOf(number));
+                continue;
+            }
+            args.add(NUMBER_PREFIX + itemKey);
+            args.add(shoppingCart.getNumber().toString());
+            args.add(ITEM_PREFIX + itemKey);
+            args.add(JSON.toJSONString(shoppingCart));
+        }
+
+        stringRedisTemplate.execute(LOAD_SCRIPT, Arrays.asList(key(userId)), args.toArray());
+    }
+
+    private List<ShoppingCart> toShoppingCarts(Long userId, Map<Object, Object> entries) {
+        List<ShoppingCart> shoppingCarts = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = (String) entry.getKey();
+            if (!field.startsWith(NUMBER_PREFIX)) {
+                continue;
+            }
+            String itemKey = field.substring(NUMBER_PREFIX.length());
+            Object info = entries.get(ITEM_PREFIX + itemKey);
+            if (info == null) {
+                //  没有商品信息的记录无法展示, 跳过
+                continue;
+            }
+
+            ShoppingCart shoppingCart = JSON.parseObject((String) info, ShoppingCart.class);
+            shoppingCart.setId(null);
+            shoppingCart.setUserId(userId);
+            shoppingCart.setNumber(Integer.valueOf((String) entry.getValue()));
+            shoppingCarts.add(shoppingCart);
+        }
+
+        shoppingCarts.sort(Comparator.comparing(ShoppingCart::getCreateTime,
+                Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder())));
+        return shoppingCarts;
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private String ttlSeconds() {
+        return String.valueOf(TimeUnit.DAYS.toSeconds(shoppingCartProperties.getTtlDays()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 对购物车中一个商品的修改
+ */
+@Data
+@AllArgsConstructor
+public class ShoppingCartChange {
+
+    //  商品 (dishId, dishFlavor, setmealId), 带有名称, 图片, 单价时, 新加入的商品会一并保存
+    private ShoppingCart item;
+
+    //  true: number 为修改后的数量; false: number 为数量的变化
+    private boolean absolute;
+
+    //  数量, 修改后小于等于 0 时删除该商品
+    private int number;
+
+    /**
+     * 商品在购物车中的标识: 菜品为 d:菜品id:口味, 套餐为 s:套餐id
+     *
+     * @param item
+     * @return
+     */
+    public static String itemKey(ShoppingCart item) {
+        if (item.getDishId() != null) {
+            return "d:" + item.getDishId() + ":" + (item.getDishFlavor() == null ? "" : item.getDishFlavor());
+        }
+        return "s:" + item.getSetmealId();
+    }
+}
@@ -0,0 +1,38 @@
+package com.sky.cart;
+
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.ShoppingCartProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 启动时检查购物车依赖的表结构和配置, 不满足时直接启动失败
+ * <p>
+ * 两种购物车存储都会写 shopping_cart 表 (Redis 购物车由定时任务同步到数据库),
+ * 缺少唯一索引时会插入重复记录, 缺少 update_time 列时所有写入都会失败, 购物车不会被保存
+ */
+@Component
+public class ShoppingCartSchemaChecker {
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    @PostConstruct
+    public void check() {
+        if (shoppingCartMapper.countItemUniqueIndex() == 0) {
+            throw new IllegalStateException("shopping_cart 缺少唯一索引 uk_user_item, 请先执行 db/shopping_cart_item_key.sql");
+        }
+        if (shoppingCartMapper.countUpdateTimeColumn() == 0) {
+            throw new IllegalStateException("shopping_cart 缺少 update_time 列, 请先执行 db/shopping_cart_update_time.sql");
+        }
+        //  Redis 中的购物车还没过期时, 数据库中的副本不能被当作废弃购物车删除
+        if (shoppingCartProperties.getAbandonDays() <= shoppingCartProperties.getTtlDays()) {
+            throw new IllegalStateException("sky.shopping-cart.abandon-days (" + shoppingCartProperties.getAbandonDays()
+                    + ") 必须大于 sky.shopping-cart.ttl-days (" + shoppingCartProperties.getTtlDays() + ")");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+/**
+ * 购物车存储
+ * <p>
+ * 购物车中的一个商品由 用户 id + 菜品 id + 口味, 或 用户 id + 套餐 id 确定
+ */
+public interface ShoppingCartStore {
+
+    /**
+     * 查询用户的购物车, 按加入时间倒序
+     * @param userId
+     * @return
+     */
+    List<ShoppingCart> list(Long userId);
+
+    /**
+     * 修改商品数量, 数量减到 0 时删除该商品
+     * 商品不在购物车中且 delta 大于 0 时加入购物车, 同时保存 item 中的名称, 图片, 单价和加入时间
+     * @param userId
+     * @param item  商品 (dishId, dishFlavor, setmealId)
+     * @param delta 数量变化
+     */
+    void increment(Long userId, ShoppingCart item, int delta);
+
+    /**
+     * 批量修改购物车, 所有修改一起生效
+     * @param userId
+     * @param changes 每个商品最多出现一次
+     */
+    void applyAll(Long userId, List<ShoppingCartChange> changes);
+
+    /**
+     * 批量加入商品, 已存在的商品累加数量
+     * @param userId
+     * @param items
+     */
+    void addAll(Long userId, List<ShoppingCart> items);
+
+    /**
+     * 清空购物车
+     * @param userId
+     */
+    void clear(Long userId);
+}
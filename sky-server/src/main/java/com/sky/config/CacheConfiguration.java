@@ -0,0 +1,68 @@
+package com.sky.config;
+
+import com.sky.cache.CacheNamespace;
+import com.sky.cache.NearCache;
+import com.sky.cache.NearCacheManager;
+import com.sky.cache.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 缓存配置: 本地缓存 (一级) + Redis (二级)
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    /**
+     * Spring Cache 使用的缓存管理器, 在 Redis 缓存之前加一层本地缓存
+     * Redis 中的 key 带有命名空间版本号 (例如 setMealCache:v3:1), 清空缓存时只需将版本号加一
+     *
+     * @param redisConnectionFactory
+     * @param nearCache
+     * @param cacheNamespace
+     * @param redisValueSerializer
+     * @param singleFlight
+     * @return
+     */
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, NearCache nearCache,
+                                     CacheNamespace cacheNamespace, RedisSerializer<Object> redisValueSerializer,
+                                     SingleFlight singleFlight) {
+        log.info("开始创建两级缓存管理器...");
+        RedisCacheConfiguration redisCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .computePrefixWith(cacheNamespace::prefix)
+                .entryTtl(cacheNamespace.ttl())
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueSerializer));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(redisCacheConfiguration)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        return new NearCacheManager(redisCacheManager, nearCache, cacheNamespace, singleFlight);
+    }
+
+    /**
+     * 订阅本地缓存失效通知
+     *
+     * @param redisConnectionFactory
+     * @param nearCache
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       NearCache nearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(nearCache, new ChannelTopic(NearCache.INVALIDATE_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sky.config;
+
+import com.sky.properties.OrderNumberProperties;
+import com.sky.task.WorkerIdLeaseTask;
+import com.sky.utils.OrderNumberGenerator;
+import com.sky.utils.SnowflakeOrderNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 订单号生成器配置, 需要其他生成策略时注册自己的 OrderNumberGenerator 即可
+ */
+@Configuration
+@Slf4j
+public class OrderNumberConfiguration {
+    /**
+     * 配置了机器 id 时直接使用, 否则从 Redis 中租用一个, 保证多个实例的机器 id 不同
+     *
+     * @param orderNumberProperties
+     * @param workerIdLeaseTask
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderNumberGenerator orderNumberGenerator(OrderNumberProperties orderNumberProperties,
+                                                     WorkerIdLeaseTask workerIdLeaseTask) {
+        Long workerId = orderNumberProperties.getWorkerId();
+        if (workerId == null) {
+            workerId = workerIdLeaseTask.acquire();
+        }
+        log.info("开始创建订单号生成器, workerId: {}", workerId);
+        return new SnowflakeOrderNumberGenerator(workerId);
+    }
+}
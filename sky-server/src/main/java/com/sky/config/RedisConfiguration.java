@@ -1,10 +1,26 @@
 package com.sky.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sky.cache.CompatibleRedisSerializer;
+import com.sky.properties.RedisCodecProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cache.support.NullValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -22,7 +38,8 @@ public class RedisConfiguration {
         导致我们存到 Redis 中后的数据和原始数据有差别，故设置为 StringRedisSerializer 序列化器。
      */
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                       RedisSerializer<Object> redisValueSerializer) {
         log.info("开始创建 redis 模板对象...");
 
         //  创建一个新的 redis 模板对象
@@ -34,8 +51,64 @@ public class RedisConfiguration {
         //  设置 redis key 的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
 
+        //  设置 redis value 的序列化器
+        redisTemplate.setValueSerializer(redisValueSerializer);
+        redisTemplate.setHashValueSerializer(redisValueSerializer);
+
         return redisTemplate;
 
     }
 
+    /**
+     * Redis 值的序列化器, RedisTemplate 和 Spring Cache 共用
+     * 默认使用带类型信息的 Smile (Jackson 的二进制 json 格式), 重复的属性名和字符串 (包括类名) 只写一次,
+     * 体积比 Java 原生序列化小, 编解码也更快, 对比见 RedisValueSerializerTest
+     * 可以通过 sky.redis.value-serializer 切换, 也可以自定义名为 redisValueSerializer 的 bean 替换
+     *
+     * @param redisCodecProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "redisValueSerializer")
+    public RedisSerializer<Object> redisValueSerializer(RedisCodecProperties redisCodecProperties) {
+        log.info("Redis 值序列化方式: {}", redisCodecProperties.getValueSerializer());
+
+        if ("jdk".equalsIgnoreCase(redisCodecProperties.getValueSerializer())) {
+            return new JdkSerializationRedisSerializer();
+        }
+
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+
+        //  兼容切换前以 Java 原生序列化或 json 文本写入的数据
+        return new CompatibleRedisSerializer(
+                new GenericJackson2JsonRedisSerializer(typedObjectMapper(new ObjectMapper(smileFactory))),
+                new GenericJackson2JsonRedisSerializer(typedObjectMapper(new ObjectMapper())));
+    }
+
+    /**
+     * 写入类型信息的 ObjectMapper, 读取时还原为原来的 VO 对象
+     * 只允许还原项目自己的类, 以及其中用到的集合和数值类型, Redis 中被写入其他类名时拒绝解析
+     *
+     * @param objectMapper
+     * @return
+     */
+    private ObjectMapper typedObjectMapper(ObjectMapper objectMapper) {
+        PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType(Number.class)
+                .allowIfSubType(NullValue.class)
+                .allowIfSubTypeIsArray()
+                .build();
+
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        objectMapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(objectMapper, null);
+        return objectMapper;
+    }
+
 }
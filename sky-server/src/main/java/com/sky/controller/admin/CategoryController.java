@@ -6,6 +6,7 @@ import com.sky.entity.Category;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.CategoryService;
+import com.sky.service.MenuService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,9 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private MenuService menuService;
+
     /**
      * 新增分类
      * @param categoryDTO
@@ -35,6 +39,7 @@ public class CategoryController {
     public Result<String> save(@RequestBody CategoryDTO categoryDTO){
         log.info("新增分类：{}", categoryDTO);
         categoryService.save(categoryDTO);
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -62,6 +67,7 @@ public class CategoryController {
     public Result<String> deleteById(Long id){
         log.info("删除分类：{}", id);
         categoryService.deleteById(id);
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -74,6 +80,7 @@ public class CategoryController {
     @ApiOperation("修改分类")
     public Result<String> update(@RequestBody CategoryDTO categoryDTO){
         categoryService.update(categoryDTO);
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -87,6 +94,7 @@ public class CategoryController {
     @ApiOperation("启用禁用分类") //  这里因为 status 和 {status} 名称一致, 所以可以不写参数, 但是 PathVariable 注解要写, 否者无法识别
     public Result<String> startOrStop(@PathVariable("status") Integer status, Long id, String test){
         categoryService.startOrStop(status,id);
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -1,21 +1,26 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.CacheNamespace;
+import com.sky.cache.CatalogCache;
+import com.sky.cache.NearCache;
+import com.sky.constant.CacheConstant;
 import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.DishService;
+import com.sky.service.MenuService;
 import com.sky.vo.DishVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * @Author: dy
@@ -32,7 +37,19 @@ public class DishController {
     private DishService dishService;
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CacheNamespace cacheNamespace;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private MenuService menuService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CatalogCache catalogCache;
 
     /*
         为了解决缓存一致性, 这里需要更改代码
@@ -56,11 +73,8 @@ public class DishController {
         //  获取对应的分类 id (咱们这里, 一个菜品只能对应一个分类)
         Long categoryId = dishDTO.getCategoryId();
 
-        //  构造 key
-        String key = "dish_" + categoryId;
-
         //  删除对应的缓存
-        cleanCache(key);
+        cleanCache(categoryId);
 
         return Result.success();
     }
@@ -96,8 +110,8 @@ public class DishController {
             这里我们之间删除所有与 dish 相关的缓存
          */
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
+        //  将所有的菜品缓存数据清理掉
+        cleanAllCache();
 
 
         return Result.success();
@@ -139,8 +153,8 @@ public class DishController {
 
         dishService.updateWithFlavor(dishDTO);
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
+        //  将所有的菜品缓存数据清理掉
+        cleanAllCache();
 
         return Result.success();
     }
@@ -156,10 +170,19 @@ public class DishController {
     public Result startOrStop(@PathVariable Integer status, Long id) {
         log.info("修改菜品状态: status = {}, id = {}", status, id);
 
-        dishService.startOrStop(status, id);
+        List<Long> setmealCategoryIds = dishService.startOrStop(status, id);
 
-        //将所有的菜品缓存数据清理掉，所有以dish_开头的key
-        cleanCache("dish_*");
+        //  将所有的菜品缓存数据清理掉
+        cleanAllCache();
+
+        //  只清理被停售套餐所属分类的套餐缓存
+        Cache setmealCache = cacheManager.getCache(CacheConstant.SETMEAL_CACHE);
+        for (Long categoryId : setmealCategoryIds) {
+            setmealCache.evict(categoryId);
+        }
+        if (!setmealCategoryIds.isEmpty()) {
+            catalogCache.invalidateSetmeals();
+        }
 
         return Result.success();
     }
@@ -180,16 +203,27 @@ public class DishController {
     }
 
 
-    private void cleanCache(String pattern) {
-        Set keys = redisTemplate.keys(pattern);
-        //  根据 keys 集合删除对应的缓存
-        redisTemplate.delete(keys);
+    /**
+     * 删除某个分类的菜品缓存
+     *
+     * @param categoryId
+     */
+    private void cleanCache(Long categoryId) {
+        cacheNamespace.evict(CacheConstant.DISH_NAMESPACE, categoryId);
+        //  通知所有实例清除本地缓存
+        nearCache.invalidate(CacheConstant.DISH_KEY_PREFIX + categoryId);
+        menuService.invalidate();
     }
 
-
-
-
-
-
+    /**
+     * 删除所有菜品缓存: 只需将命名空间的版本号加一, 不再使用 KEYS 扫描
+     */
+    private void cleanAllCache() {
+        cacheNamespace.invalidateAll(CacheConstant.DISH_NAMESPACE);
+        //  通知所有实例清除本地缓存
+        nearCache.invalidate(CacheConstant.DISH_KEY_PREFIX + "*");
+        catalogCache.invalidateDishes();
+        menuService.invalidate();
+    }
 
 }
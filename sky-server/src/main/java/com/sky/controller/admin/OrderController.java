@@ -1,6 +1,7 @@
 package com.sky.controller.admin;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -43,6 +44,20 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 根据条件游标分页查询订单
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    @GetMapping("/conditionSearch/cursor")
+    @ApiOperation("根据条件游标分页查询订单")
+    public Result<CursorPageResult> pageByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        log.info("根据条件游标分页查询订单: {}", ordersPageQueryDTO);
+        CursorPageResult cursorPageResult = orderService.conditionSearchByCursor(ordersPageQueryDTO);
+        return Result.success(cursorPageResult);
+    }
+
     @GetMapping("/statistics")
     @ApiOperation("各个状态的订单数量统计")
     public Result<OrderStatisticsVO> statistics() {
@@ -106,16 +106,25 @@ public class ReportController {
 
 
     /**
-     * 导出近30天的运营数据报表
+     * 导出运营数据报表, 不指定日期时默认导出近30天
      *
+     * @param begin
+     * @param end
      * @param response
      */
     @GetMapping("export")
-    @ApiOperation("")
-    public void export(HttpServletResponse response) {
+    @ApiOperation("导出运营数据报表")
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpServletResponse response) {
+        if (begin == null || end == null) {
+            begin = LocalDate.now().minusDays(30);
+            end = LocalDate.now().minusDays(1);
+        }
         //  通过 "HttpServletResponse" 来获得输出流
-        log.info("导出近30天的运营数据报表");
-        reportService.exportBusinessData(response);
+        log.info("导出运营数据报表: {}, {}", begin, end);
+        reportService.exportBusinessData(begin, end, response);
     }
 
 
@@ -1,10 +1,12 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.CatalogCache;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.dto.SetmealDTO;
 import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.service.MenuService;
 import com.sky.service.SetMealService;
 import com.sky.vo.SetmealVO;
 import io.swagger.annotations.Api;
@@ -33,6 +35,10 @@ import java.util.List;
 public class SetMealController {
     @Autowired
     private SetMealService setMealService;
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private CatalogCache catalogCache;
 
     /**
      * 新增套餐
@@ -45,6 +51,7 @@ public class SetMealController {
     public Result save(@RequestBody SetmealDTO setmealDTO) {
         log.info("新增套餐: {}", setmealDTO);
         setMealService.saveWithDish(setmealDTO);
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -73,6 +80,8 @@ public class SetMealController {
     public Result delete(@RequestParam  List<Long> ids) {
         log.info("批量删除套餐: {}", ids);
         setMealService.deleteByIds(ids);
+        catalogCache.invalidateSetmeals();
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -101,6 +110,8 @@ public class SetMealController {
     public Result update(@RequestBody SetmealDTO setmealDTO) {
         log.info("修改套餐: {}", setmealDTO);
         setMealService.update(setmealDTO);
+        catalogCache.invalidateSetmeals();
+        menuService.invalidate();
         return Result.success();
     }
 
@@ -116,6 +127,8 @@ public class SetMealController {
         log.info("套餐起售停售: {}, {}", id, status);
 
         setMealService.startOrStop(status, id);
+        catalogCache.invalidateSetmeals();
+        menuService.invalidate();
 
         return Result.success();
     }
@@ -0,0 +1,104 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuSnapshot;
+import com.sky.service.MenuService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/user/menu")
+@Slf4j
+@Api(tags = "C端-菜单接口")
+public class MenuController {
+
+    @Autowired
+    private MenuService menuService;
+
+    /**
+     * 查询整个菜单: 所有启用的分类, 以及其中起售中的菜品 (带口味) 和套餐
+     * 客户端带上 If-None-Match 且菜单没有变化时返回 304, 不返回内容
+     * 快照已经是序列化好的字节, 直接写到响应流中, 不经过消息转换器 (Jackson 转换器会把 byte[] 写成 base64 字符串)
+     *
+     * @param ifNoneMatch
+     * @param acceptEncoding
+     * @param response
+     */
+    @GetMapping
+    @ApiOperation("查询整个菜单")
+    public void menu(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                     HttpServletResponse response) throws IOException {
+        MenuSnapshot snapshot = menuService.getSnapshot();
+
+        //  客户端支持 gzip 时直接返回预先压缩好的内容
+        //  两种编码的内容不同, 使用不同的 ETag
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? gzipEtag(snapshot.getEtag()) : snapshot.getEtag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (notModified(ifNoneMatch, snapshot.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = gzip ? snapshot.getGzip() : snapshot.getJson();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * gzip 内容的 ETag: 在 json 的 ETag 后面加上 -gzip
+     *
+     * @param etag
+     * @return
+     */
+    private String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * 按弱比较判断 If-None-Match 是否命中当前菜单
+     * 支持 *, 逗号分隔的多个 ETag 以及 W/ 前缀, 两种编码的 ETag 都算命中 (内容相同, 只是编码不同)
+     *
+     * @param ifNoneMatch
+     * @param etag
+     * @return
+     */
+    private boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals(gzipEtag(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@ package com.sky.controller.user;
 
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -77,6 +78,22 @@ public class OrderController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 历史订单游标分页查询
+     *
+     * @param cursor   上一页返回的 nextCursor, 第一页不传
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    @GetMapping("historyOrders/cursor")
+    @ApiOperation("历史订单游标分页查询")
+    public Result<CursorPageResult> pageByCursor(String cursor, Integer pageSize, Integer status) {
+        log.info("历史订单游标分页查询: {}, {}, {}", cursor, pageSize, status);
+        CursorPageResult cursorPageResult = orderService.pageQueryByCursor(cursor, pageSize, status);
+        return Result.success(cursorPageResult);
+    }
+
     /**
      * 查看订单详情
      *
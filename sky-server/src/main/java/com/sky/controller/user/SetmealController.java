@@ -32,7 +32,7 @@ public class SetmealController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setMealCache", key = "#categoryId")
+    @Cacheable(cacheNames = "setMealCache", key = "#categoryId", sync = true)  //  缓存失效时同一分类只查询一次数据库
     public Result<List<Setmeal>> list(Long categoryId) {
         Setmeal setmeal = new Setmeal();
         setmeal.setCategoryId(categoryId);
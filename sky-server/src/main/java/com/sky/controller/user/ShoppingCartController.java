@@ -1,6 +1,7 @@
 package com.sky.controller.user;
 
 import com.sky.dto.ShoppingCartDTO;
+import com.sky.dto.ShoppingCartOperationDTO;
 import com.sky.entity.ShoppingCart;
 import com.sky.result.Result;
 import com.sky.service.ShoppingCartService;
@@ -88,5 +89,18 @@ public class ShoppingCartController {
         return Result.success();
     }
 
+    /**
+     * 批量修改购物车, 一次请求提交多个加购、减购或设置数量的操作
+     * @param operations
+     * @return 修改后的购物车
+     */
+    @PostMapping("/batch")
+    @ApiOperation("批量修改购物车")
+    public Result<List<ShoppingCart>> batch(@RequestBody List<ShoppingCartOperationDTO> operations) {
+        log.info("批量修改购物车: {}", operations);
+        List<ShoppingCart> shoppingCartList = shoppingCartService.batchUpdate(operations);
+        return Result.success(shoppingCartList);
+    }
+
 
 }
@@ -0,0 +1,44 @@
+package com.sky.mapper;
+
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 每日营业数据汇总表 daily_business_stats
+ */
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 批量写入每日汇总数据, 已存在的日期直接覆盖
+     *
+     * @param statsList
+     */
+    void upsertBatch(List<DailyBusinessStats> statsList);
+
+    /**
+     * 在某一天的汇总数据上累加增量, 当天没有记录时新建
+     *
+     * @param stats 各字段为增量值
+     */
+    void increment(DailyBusinessStats stats);
+
+    /**
+     * 在某一天已有的汇总数据上累加增量, 当天没有记录时不做任何操作
+     *
+     * @param stats 各字段为增量值
+     */
+    void incrementExisting(DailyBusinessStats stats);
+
+    /**
+     * 查询时间段内的每日汇总数据
+     *
+     * @param begin 起始日期 (包含)
+     * @param end   结束日期 (包含)
+     * @return
+     */
+    List<DailyBusinessStats> getByDateRange(LocalDate begin, LocalDate end);
+}
@@ -30,6 +30,12 @@ public interface DishFlavorMapper {
     @Delete("delete from dish_flavor where dish_id = #{dishId}")
     void deleteByDishId(Long dishId);
 
+    /**
+     * 根据多个菜品 id 批量删除口味
+     * @param dishIds
+     */
+    void deleteByDishIds(List<Long> dishIds);
+
     /**
      * 通过 id 查询所关联的口味
      * @param dishId
@@ -37,4 +43,11 @@ public interface DishFlavorMapper {
      */
     @Select("select * from dish_flavor where dish_id = #{dishId}")
     List<DishFlavor> getById(Long dishId);
+
+    /**
+     * 根据多个菜品 id 批量查询口味
+     * @param dishIds
+     * @return
+     */
+    List<DishFlavor> getByDishIds(List<Long> dishIds);
 }
@@ -57,6 +57,20 @@ public interface DishMapper {
     @Delete("delete from dish where id = #{id}")
     void deleteById(Long id);
 
+    /**
+     * 统计指定 id 中处于某状态的菜品数量
+     * @param ids
+     * @param status
+     * @return
+     */
+    Integer countByIdsAndStatus(List<Long> ids, Integer status);
+
+    /**
+     * 根据 id 批量删除菜品
+     * @param ids
+     */
+    void deleteByIds(List<Long> ids);
+
     /**
      * 修改菜品
      * @param dish
@@ -1,7 +1,9 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.DailyOrderStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
@@ -42,6 +44,17 @@ public interface OrdersMapper {
      */
     void update(Orders orders);
 
+    /**
+     * 批量修改订单状态, 只有当前状态为 fromStatus 的订单才会被修改
+     * 新状态以及取消原因, 取消时间, 送达时间取自 orders
+     *
+     * @param ids
+     * @param fromStatus
+     * @param orders
+     * @return 实际修改的订单数量
+     */
+    int updateStatusByIds(List<Long> ids, Integer fromStatus, Orders orders);
+
     /**
      * 根据条件查询订单
      *
@@ -50,6 +63,27 @@ public interface OrdersMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 根据条件游标分页查询订单, 按 (order_time, id) 倒序
+     * 从游标位置之后开始取, 不使用 offset, 翻到多深的页代价都相同
+     *
+     * @param query      查询条件
+     * @param cursorTime 上一页最后一条订单的下单时间, 第一页为 null
+     * @param cursorId   上一页最后一条订单的 id, 第一页为 null
+     * @param limit
+     * @return
+     */
+    List<Orders> pageQueryByCursor(OrdersPageQueryDTO query, LocalDateTime cursorTime, Long cursorId, int limit);
+
+    /**
+     * 根据条件统计订单数量, 最多数到 cap 条
+     *
+     * @param query
+     * @param cap
+     * @return
+     */
+    long countWithCap(OrdersPageQueryDTO query, int cap);
+
     /**
      * 根据订单 id 查询订单
      *
@@ -75,6 +109,17 @@ public interface OrdersMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 根据状态和下单时间分批查询订单, 每次最多返回 limit 条
+     *
+     * @param status
+     * @param orderTime
+     * @param limit
+     * @return
+     */
+    @Select("select * from orders where status = #{status} and order_time < #{orderTime} order by id limit #{limit}")
+    List<Orders> getBatchByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, int limit);
+
     /**
      * 查询当天所有营业额
      *
@@ -99,4 +144,24 @@ public interface OrdersMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDate begin, LocalDate end);
+
+    /**
+     * 按状态分组统计订单数量, 一次扫描得到所有状态的数量
+     *
+     * @param begin 下单时间下限, 为空则不限制
+     * @param end   下单时间上限, 为空则不限制
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按下单日期分组, 一次查询出时间段内每天的订单数, 有效订单数和营业额
+     * 没有订单的日期不会出现在结果中
+     *
+     * @param begin  起始时间 (包含)
+     * @param end    结束时间 (不包含)
+     * @param status 有效订单的状态
+     * @return
+     */
+    List<DailyOrderStatisticsDTO> getDailyStatistics(LocalDateTime begin, LocalDateTime end, Integer status);
 }
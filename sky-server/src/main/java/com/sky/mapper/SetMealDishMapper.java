@@ -44,6 +44,12 @@ public interface SetMealDishMapper {
     @Delete("delete from setmeal_dish where setmeal_id = #{setMealId}")
     void deleteBySetMealId(Long setMealId);
 
+    /**
+     * 根据多个套餐id批量删除套餐和菜品的关联关系
+     * @param setMealIds
+     */
+    void deleteBySetMealIds(List<Long> setMealIds);
+
 
     /**
      * 根据套餐 id 查询套餐所对应的菜品
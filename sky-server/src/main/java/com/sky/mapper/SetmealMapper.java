@@ -41,6 +41,39 @@ public interface SetmealMapper {
     @Delete("delete from setmeal where id = #{id}")
     void deleteByIds(Long id);
 
+    /**
+     * 根据 id 批量删除套餐
+     * @param ids
+     */
+    void deleteBatch(List<Long> ids);
+
+    /**
+     * 统计指定 id 中处于某状态的套餐数量
+     * @param ids
+     * @param status
+     * @return
+     */
+    Integer countByIdsAndStatus(List<Long> ids, Integer status);
+
+    /**
+     * 查询包含某菜品且处于某状态的套餐所属的分类 id
+     * @param dishId
+     * @param status
+     * @return
+     */
+    @Select("select distinct s.category_id from setmeal s join setmeal_dish sd on s.id = sd.setmeal_id " +
+            "where sd.dish_id = #{dishId} and s.status = #{status}")
+    List<Long> getCategoryIdsByDishId(Long dishId, Integer status);
+
+    /**
+     * 将包含某菜品的所有套餐修改为指定状态
+     * @param setmeal 目标状态, 以及自动填充的修改时间和修改人
+     * @param dishId
+     * @return 修改的套餐数量
+     */
+    @AutoFill(OperationType.UPDATE)
+    int updateStatusByDishId(Setmeal setmeal, Long dishId);
+
     /**
      * 通过 id 查询套餐
      * @param id
@@ -4,8 +4,10 @@ import com.sky.entity.ShoppingCart;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -27,7 +29,7 @@ public interface ShoppingCartMapper {
      * 更新商品数量
      * @param shoppingCart
      */
-    @Update("update shopping_cart set number = #{number} where id = #{id}")
+    @Update("update shopping_cart set number = #{number}, update_time = now() where id = #{id}")
     void updateNumberById(ShoppingCart shoppingCart);
 
     /**
@@ -35,8 +37,8 @@ public interface ShoppingCartMapper {
      *
      * @param shoppingCart
      */
-    @Insert("insert into shopping_cart (name, user_id, dish_id, setmeal_id, dish_flavor, number, amount, image, create_time) " +
-            " values (#{name},#{userId},#{dishId},#{setmealId},#{dishFlavor},#{number},#{amount},#{image},#{createTime})")
+    @Insert("insert into shopping_cart (name, user_id, dish_id, setmeal_id, dish_flavor, number, amount, image, create_time, update_time) " +
+            " values (#{name},#{userId},#{dishId},#{setmealId},#{dishFlavor},#{number},#{amount},#{image},#{createTime},now())")
     void insert(ShoppingCart shoppingCart);
 
     /**
@@ -59,4 +61,97 @@ public interface ShoppingCartMapper {
      * @param shoppingCartList
      */
     void insertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 批量加入购物车, 商品已存在时累加数量 (依赖 uk_user_item 唯一索引)
+     *
+     * @param shoppingCartList number 为要增加的数量
+     */
+    void upsertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 批量设置商品数量, 商品不存在时插入 (依赖 uk_user_item 唯一索引)
+     *
+     * @param shoppingCartList number 为修改后的数量
+     */
+    void setNumberBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 查询唯一索引 uk_user_item 是否存在, 不存在时 upsertBatch 和 setNumberBatch 会插入重复记录
+     *
+     * @return 索引包含的列数, 不存在时为 0
+     */
+    @Select("select count(*) from information_schema.statistics " +
+            "where table_schema = database() and table_name = 'shopping_cart' and index_name = 'uk_user_item'")
+    int countItemUniqueIndex();
+
+    /**
+     * 查询最后修改时间列 update_time 是否存在, 不存在时所有写购物车的语句都会失败
+     *
+     * @return 存在时为 1, 不存在时为 0
+     */
+    @Select("select count(*) from information_schema.columns " +
+            "where table_schema = database() and table_name = 'shopping_cart' and column_name = 'update_time'")
+    int countUpdateTimeColumn();
+
+    /**
+     * 商品数量大于 delta 时减少数量
+     *
+     * @param shoppingCart 用户 id, 菜品 id, 口味, 套餐 id
+     * @param delta
+     * @return 修改的行数, 为 0 时说明数量不足, 应当删除该商品
+     */
+    int decrementNumber(ShoppingCart shoppingCart, int delta);
+
+    /**
+     * 删除购物车中的一个商品
+     *
+     * @param shoppingCart 用户 id, 菜品 id, 口味, 套餐 id
+     */
+    void deleteItem(ShoppingCart shoppingCart);
+
+    /**
+     * 查询最后一次修改早于 time 的用户, 即长时间没有使用的购物车
+     *
+     * @param time
+     * @param limit
+     * @return 用户 id
+     */
+    List<Long> getIdleUserIds(LocalDateTime time, int limit);
+
+    /**
+     * 删除这些用户最后一次修改早于 time 的购物车数据
+     * 查询之后又修改过的商品不会被删除
+     *
+     * @param userIds
+     * @param time
+     * @return 删除的行数
+     */
+    int deleteIdleByUserIds(List<Long> userIds, LocalDateTime time);
+
+    /**
+     * 查询有重复记录的商品
+     *
+     * @param limit
+     * @return 用户 id, 菜品 id, 口味, 套餐 id
+     */
+    @Select("select user_id, dish_id, dish_flavor, setmeal_id from shopping_cart " +
+            "group by user_id, dish_id, dish_flavor, setmeal_id having count(*) > 1 limit #{limit}")
+    List<ShoppingCart> getDuplicateItems(int limit);
+
+    /**
+     * 查询一个商品的全部记录并加锁, 需在事务中调用
+     *
+     * @param shoppingCart 用户 id, 菜品 id, 口味, 套餐 id
+     * @return 按 id 升序
+     */
+    List<ShoppingCart> getItemForUpdate(ShoppingCart shoppingCart);
+
+    /**
+     * 删除同一商品除 id 之外的其它记录
+     *
+     * @param shoppingCart 保留的记录: id, 用户 id, 菜品 id, 口味, 套餐 id
+     * @return 删除的行数
+     */
+    int deleteDuplicates(ShoppingCart shoppingCart);
 }
@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.DailyUserStatisticsDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,4 +44,13 @@ public interface UserMapper {
      * @return
      */
     Integer getUserStatistics(Map<Object, Object> map);
+
+    /**
+     * 按注册日期分组, 一次查询出时间段内每天的新增用户数
+     * 没有新增用户的日期不会出现在结果中
+     * @param begin 起始时间 (包含)
+     * @param end 结束时间 (不包含)
+     * @return
+     */
+    List<DailyUserStatisticsDTO> getDailyNewUsers(LocalDateTime begin, LocalDateTime end);
 }
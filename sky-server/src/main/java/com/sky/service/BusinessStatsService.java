@@ -0,0 +1,80 @@
+package com.sky.service;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.entity.User;
+import com.sky.vo.BusinessDataVO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日营业数据汇总
+ */
+public interface BusinessStatsService {
+
+    /**
+     * 查询 begin ~ end 每天的营业数据 (包含两端)
+     * 已经结束的日期从汇总表读取, 今天及以后的日期实时统计
+     *
+     * @param begin
+     * @param end
+     * @return 以日期为 key, 按日期升序, 区间内每一天都有值
+     */
+    Map<LocalDate, DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end);
+
+    /**
+     * 将若干天的营业数据汇总为营业额, 有效订单数, 订单完成率, 平均客单价和新增用户数
+     *
+     * @param dailyStats
+     * @return
+     */
+    BusinessDataVO summarize(Collection<DailyBusinessStats> dailyStats);
+
+    /**
+     * 根据订单表和用户表重新统计 begin ~ end 每天的营业数据, 并覆盖写入汇总表
+     *
+     * @param begin
+     * @param end
+     */
+    void refresh(LocalDate begin, LocalDate end);
+
+    /**
+     * 统计汇总表中缺失的日期 (例如上线之前的历史数据), 写入汇总表
+     *
+     * @param begin
+     * @param end
+     * @return 补写的天数
+     */
+    int backfill(LocalDate begin, LocalDate end);
+
+    /**
+     * 用户下单后, 累加下单当天的订单总数
+     *
+     * @param orders
+     */
+    void recordOrderSubmitted(Orders orders);
+
+    /**
+     * 订单完成后, 累加下单当天的有效订单数和营业额
+     *
+     * @param orders
+     */
+    void recordOrderCompleted(Orders orders);
+
+    /**
+     * 批量完成订单后, 按下单日期累加有效订单数和营业额, 每个日期只写一次
+     *
+     * @param ordersList
+     */
+    void recordOrdersCompleted(List<Orders> ordersList);
+
+    /**
+     * 新用户注册后, 累加注册当天的新增用户数
+     *
+     * @param user
+     */
+    void recordNewUser(User user);
+}
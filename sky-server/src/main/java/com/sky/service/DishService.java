@@ -43,11 +43,12 @@ public interface DishService {
     void updateWithFlavor(DishDTO dishDTO);
 
     /**
-     * 修改菜品状态
+     * 修改菜品状态, 停售时同时停售包含该菜品的套餐
      * @param status
      * @param id
+     * @return 被停售的套餐所属的分类 id, 用于清理套餐缓存
      */
-    void startOrStop(Integer status, Long id);
+    List<Long> startOrStop(Integer status, Long id);
 
     /**
      * 根据分类 id 查询菜品
@@ -0,0 +1,17 @@
+package com.sky.service;
+
+import com.sky.cache.MenuSnapshot;
+
+public interface MenuService {
+
+    /**
+     * 获取整个菜单的快照, 菜单没有变化时直接返回已生成的快照
+     * @return
+     */
+    MenuSnapshot getSnapshot();
+
+    /**
+     * 分类, 菜品或套餐发生修改后调用, 所有实例的菜单快照都会在下次请求时重新生成
+     */
+    void invalidate();
+}
@@ -1,6 +1,7 @@
 package com.sky.service;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
@@ -48,6 +49,16 @@ public interface OrderService {
      */
     PageResult pageQuery(Integer page, Integer pageSize, Integer status);
 
+    /**
+     * 历史订单游标分页查询
+     *
+     * @param cursor
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    CursorPageResult pageQueryByCursor(String cursor, Integer pageSize, Integer status);
+
     /**
      * 查看订单详情
      *
@@ -78,6 +89,14 @@ public interface OrderService {
      */
     PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 根据条件游标分页查询订单
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 各个状态的订单数量统计
      *
@@ -0,0 +1,43 @@
+package com.sky.service;
+
+import com.sky.entity.Orders;
+
+import java.util.List;
+
+/**
+ * 支付超时订单的延时队列
+ */
+public interface PaymentTimeoutService {
+
+    //  订单超过 15 min 未支付自动取消
+    int PAYMENT_TIMEOUT_MINUTES = 15;
+
+    /**
+     * 登记订单的支付截止时间
+     *
+     * @param orders
+     */
+    void register(Orders orders);
+
+    /**
+     * 订单已支付, 从延时队列中移除
+     *
+     * @param orderId
+     */
+    void remove(Long orderId);
+
+    /**
+     * 查询支付截止时间已到的订单
+     *
+     * @param limit 最多返回的数量
+     * @return 订单 id
+     */
+    List<Long> getExpired(int limit);
+
+    /**
+     * 从延时队列中移除已经处理过的订单
+     *
+     * @param orderIds
+     */
+    void removeAll(List<Long> orderIds);
+}
@@ -54,11 +54,13 @@ public interface ReportService {
     SalesTop10ReportVO getTop10Statistics(LocalDate begin, LocalDate end);
 
     /**
-     * 导出近30天的运营数据报表
+     * 导出指定日期范围的运营数据报表
      *
+     * @param begin
+     * @param end
      * @param response
      **/
-    void exportBusinessData(HttpServletResponse response);
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response);
 
 
 }
@@ -1,6 +1,7 @@
 package com.sky.service;
 
 import com.sky.dto.ShoppingCartDTO;
+import com.sky.dto.ShoppingCartOperationDTO;
 import com.sky.entity.ShoppingCart;
 
 import java.util.List;
@@ -12,6 +13,9 @@ import java.util.List;
  */
 public interface ShoppingCartService {
 
+    //  购物车中单个商品 (同一菜品口味或套餐) 最多的份数
+    int MAX_ITEM_NUMBER = 99;
+
     /**
      * 添加购物车
      * @param shoppingCartDTO
@@ -34,4 +38,11 @@ public interface ShoppingCartService {
      * @param shoppingCartDTO
      */
     void subShoppingCart(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 批量修改购物车
+     * @param operations
+     * @return 修改后的购物车
+     */
+    List<ShoppingCart> batchUpdate(List<ShoppingCartOperationDTO> operations);
 }
@@ -0,0 +1,311 @@
+package com.sky.service.impl;
+
+import com.sky.dto.DailyOrderStatisticsDTO;
+import com.sky.dto.DailyUserStatisticsDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.entity.User;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrdersMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
+import com.sky.vo.BusinessDataVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日营业数据汇总
+ */
+@Service
+@Slf4j
+public class BusinessStatsServiceImpl implements BusinessStatsService {
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrdersMapper ordersMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 查询 begin ~ end 每天的营业数据
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    public Map<LocalDate, DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, DailyBusinessStats> statsMap = new LinkedHashMap<>();
+
+        //  已经结束的日期 (今天之前) 从汇总表中读取
+        LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+        if (!begin.isAfter(closedEnd)) {
+            for (DailyBusinessStats stats : dailyBusinessStatsMapper.getByDateRange(begin, closedEnd)) {
+                statsMap.put(stats.getStatDate(), stats);
+            }
+
+            //  汇总表里缺失的日期 (例如上线之前的历史数据) 实时统计, 查询接口不写汇总表, 由 BusinessStatsTask 补写
+            List<LocalDate> missingDates = missingDates(begin, closedEnd, statsMap);
+            if (!missingDates.isEmpty()) {
+                Map<LocalDate, DailyBusinessStats> liveMap =
+                        computeFromRaw(missingDates.get(0), missingDates.get(missingDates.size() - 1));
+                for (LocalDate date : missingDates) {
+                    statsMap.put(date, liveMap.get(date));
+                }
+            }
+        }
+
+        //  今天及以后的数据还在变化, 实时统计
+        if (!end.isBefore(today)) {
+            statsMap.putAll(computeFromRaw(begin.isAfter(today) ? begin : today, end));
+        }
+
+        //  按日期顺序返回
+        Map<LocalDate, DailyBusinessStats> result = new LinkedHashMap<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            result.put(date, statsMap.get(date));
+        }
+        return result;
+    }
+
+    /**
+     * 汇总若干天的营业数据
+     *
+     * @param dailyStats
+     * @return
+     */
+    public BusinessDataVO summarize(Collection<DailyBusinessStats> dailyStats) {
+        /*
+         * 营业额：已完成订单的总金额
+         * 有效订单：已完成订单的数量
+         * 订单完成率：有效订单数 / 总订单数
+         * 平均客单价：营业额 / 有效订单数
+         * 新增用户：新增用户的数量
+         */
+        Integer totalOrderCount = 0;
+        Double turnover = 0.0;
+        Integer validOrderCount = 0;
+        Integer newUsers = 0;
+        for (DailyBusinessStats daily : dailyStats) {
+            totalOrderCount += daily.getOrderCount();
+            turnover += daily.getTurnover();
+            validOrderCount += daily.getValidOrderCount();
+            newUsers += daily.getNewUsers();
+        }
+
+        Double unitPrice = 0.0;
+        Double orderCompletionRate = 0.0;
+
+        //  总订单数和有效订单数但凡有一个为 0, 订单完成率和平均客单价就没有意义
+        if (totalOrderCount != 0 && validOrderCount != 0) {
+            //订单完成率
+            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
+        }
+
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
+
+    /**
+     * 重新统计并覆盖写入汇总表
+     *
+     * @param begin
+     * @param end
+     */
+    public void refresh(LocalDate begin, LocalDate end) {
+        Map<LocalDate, DailyBusinessStats> statsMap = computeFromRaw(begin, end);
+        dailyBusinessStatsMapper.upsertBatch(new ArrayList<>(statsMap.values()));
+    }
+
+    /**
+     * 统计汇总表中缺失的日期, 写入汇总表, 已有的日期不会被覆盖
+     *
+     * @param begin
+     * @param end
+     * @return 补写的天数
+     */
+    public int backfill(LocalDate begin, LocalDate end) {
+        Map<LocalDate, DailyBusinessStats> statsMap = new LinkedHashMap<>();
+        for (DailyBusinessStats stats : dailyBusinessStatsMapper.getByDateRange(begin, end)) {
+            statsMap.put(stats.getStatDate(), stats);
+        }
+        List<LocalDate> missingDates = missingDates(begin, end, statsMap);
+        if (missingDates.isEmpty()) {
+            return 0;
+        }
+
+        Map<LocalDate, DailyBusinessStats> liveMap =
+                computeFromRaw(missingDates.get(0), missingDates.get(missingDates.size() - 1));
+        List<DailyBusinessStats> backfillList = new ArrayList<>();
+        for (LocalDate date : missingDates) {
+            backfillList.add(liveMap.get(date));
+        }
+        dailyBusinessStatsMapper.upsertBatch(backfillList);
+        return backfillList.size();
+    }
+
+    /**
+     * 用户下单后, 累加下单当天的订单总数
+     *
+     * @param orders
+     */
+    public void recordOrderSubmitted(Orders orders) {
+        applyDelta(DailyBusinessStats.builder()
+                .statDate(orders.getOrderTime().toLocalDate())
+                .orderCount(1)
+                .validOrderCount(0)
+                .turnover(0.0)
+                .newUsers(0)
+                .updateTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 订单完成后, 累加下单当天的有效订单数和营业额
+     *
+     * @param orders
+     */
+    public void recordOrderCompleted(Orders orders) {
+        double amount = orders.getAmount() == null ? 0.0 : orders.getAmount().doubleValue();
+        applyDelta(DailyBusinessStats.builder()
+                .statDate(orders.getOrderTime().toLocalDate())
+                .orderCount(0)
+                .validOrderCount(1)
+                .turnover(amount)
+                .newUsers(0)
+                .updateTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 批量完成订单后, 按下单日期累加有效订单数和营业额
+     *
+     * @param ordersList
+     */
+    public void recordOrdersCompleted(List<Orders> ordersList) {
+        Map<LocalDate, DailyBusinessStats> deltaMap = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Orders orders : ordersList) {
+            LocalDate date = orders.getOrderTime().toLocalDate();
+            DailyBusinessStats delta = deltaMap.computeIfAbsent(date, d -> DailyBusinessStats.builder()
+                    .statDate(d)
+                    .orderCount(0)
+                    .validOrderCount(0)
+                    .turnover(0.0)
+                    .newUsers(0)
+                    .updateTime(now)
+                    .build());
+            delta.setValidOrderCount(delta.getValidOrderCount() + 1);
+            delta.setTurnover(delta.getTurnover() + (orders.getAmount() == null ? 0.0 : orders.getAmount().doubleValue()));
+        }
+
+        for (DailyBusinessStats delta : deltaMap.values()) {
+            applyDelta(delta);
+        }
+    }
+
+    /**
+     * 新用户注册后, 累加注册当天的新增用户数
+     *
+     * @param user
+     */
+    public void recordNewUser(User user) {
+        applyDelta(DailyBusinessStats.builder()
+                .statDate(user.getCreateTime().toLocalDate())
+                .orderCount(0)
+                .validOrderCount(0)
+                .turnover(0.0)
+                .newUsers(1)
+                .updateTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 把增量累加到汇总表
+     * 今天的记录不存在时新建; 更早的日期只累加已有的记录, 没有记录的日期由报表查询时补写,
+     * 否则会新建一条只有增量的记录, 而补写只处理没有记录的日期, 这条不完整的数据就再也不会被修正
+     *
+     * @param delta
+     */
+    private void applyDelta(DailyBusinessStats delta) {
+        if (delta.getStatDate().equals(LocalDate.now())) {
+            dailyBusinessStatsMapper.increment(delta);
+        } else {
+            dailyBusinessStatsMapper.incrementExisting(delta);
+        }
+    }
+
+    /**
+     * 直接从订单表和用户表统计 begin ~ end 每天的营业数据, 每张表只查询一次
+     *
+     * @param begin
+     * @param end
+     * @return 区间内每一天都有值, 没有数据的日期补 0
+     */
+    private Map<LocalDate, DailyBusinessStats> computeFromRaw(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<LocalDate, DailyBusinessStats> statsMap = new LinkedHashMap<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            statsMap.put(date, DailyBusinessStats.builder()
+                    .statDate(date)
+                    .orderCount(0)
+                    .validOrderCount(0)
+                    .turnover(0.0)
+                    .newUsers(0)
+                    .updateTime(now)
+                    .build());
+        }
+
+        for (DailyOrderStatisticsDTO daily : ordersMapper.getDailyStatistics(beginTime, endTime, Orders.COMPLETED)) {
+            DailyBusinessStats stats = statsMap.get(daily.getDate());
+            stats.setOrderCount(daily.getOrderCount());
+            stats.setValidOrderCount(daily.getValidOrderCount());
+            stats.setTurnover(daily.getTurnover() == null ? 0.0 : daily.getTurnover());
+        }
+
+        for (DailyUserStatisticsDTO daily : userMapper.getDailyNewUsers(beginTime, endTime)) {
+            statsMap.get(daily.getDate()).setNewUsers(daily.getNewUsers());
+        }
+
+        return statsMap;
+    }
+
+    /**
+     * begin ~ end 中不在 statsMap 里的日期, 按日期顺序返回
+     *
+     * @param begin
+     * @param end
+     * @param statsMap
+     * @return
+     */
+    private List<LocalDate> missingDates(LocalDate begin, LocalDate end, Map<LocalDate, DailyBusinessStats> statsMap) {
+        List<LocalDate> missingDates = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            if (!statsMap.containsKey(date)) {
+                missingDates.add(date);
+            }
+        }
+        return missingDates;
+    }
+}
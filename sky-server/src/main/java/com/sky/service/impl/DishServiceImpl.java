@@ -13,6 +13,7 @@ import com.sky.exception.DeletionNotAllowedException;
 import com.sky.mapper.DishFlavorMapper;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetMealDishMapper;
+import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
 import com.sky.vo.DishVO;
@@ -23,8 +24,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * @Author: dy
@@ -42,6 +46,8 @@ public class DishServiceImpl implements DishService {
 
     @Autowired
     private SetMealDishMapper setMealDishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
 
     /**
      * 新增菜品和对应口味
@@ -101,15 +107,17 @@ public class DishServiceImpl implements DishService {
     public void deleteBatch(List<Long> ids) {
         //  在 service 层先填写逻辑, 然后再使用 Java 代码 "翻译"
 
+        //  没有要删除的菜品, 空的 in () 会导致 sql 语法错误
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
         //  先判断能否删除---菜品是否起售
         //  这里采用的是但凡有一个菜品起售, 该删除操作就不能完成
-        for (Long id : ids) {
-            Dish dish = dishMapper.getById(id);
-
-            if (Objects.equals(dish.getStatus(), StatusConstant.ENABLE)) {
-                //  当前套餐处于起售状态, 抛出异常
-                throw new DeletionNotAllowedException(MessageConstant.DISH_ON_SALE);
-            }
+        Integer onSaleCount = dishMapper.countByIdsAndStatus(ids, StatusConstant.ENABLE);
+        if (onSaleCount != null && onSaleCount > 0) {
+            //  当前菜品处于起售状态, 抛出异常
+            throw new DeletionNotAllowedException(MessageConstant.DISH_ON_SALE);
         }
 
         //  先判断能否删除---是否关联套餐
@@ -122,18 +130,13 @@ public class DishServiceImpl implements DishService {
             throw new DeletionNotAllowedException(MessageConstant.DISH_BE_RELATED_BY_SETMEAL);
         }
 
-        //  可以删除菜品
-        //  将口味一块删除
-        //  直接在口味表中查询是否有相关菜品的 id
-        for (Long id : ids) {
-            //  删除菜品
-            dishMapper.deleteById(id);
-
-            //  删除菜品相关口味
-            //  注意: 这里是批量删除, 因为我们根据的是菜品的 id 来删除数据的
-            //  菜品的 id 并不作为主键, 可能有好多口味都对应的有该菜品的 id
-            dishFlavorMapper.deleteByDishId(id);
-        }
+        //  可以删除菜品, 将口味一块删除
+        //  菜品和口味各用一条 in 语句批量删除
+        dishMapper.deleteByIds(ids);
+
+        //  注意: 口味是根据菜品的 id 来删除的
+        //  菜品的 id 并不作为主键, 可能有好多口味都对应的有该菜品的 id
+        dishFlavorMapper.deleteByDishIds(ids);
 
 
     }
@@ -148,17 +151,12 @@ public class DishServiceImpl implements DishService {
 
         //  根据 id 查询菜品
         Dish dish = dishMapper.getById(id);
-        //  根据 id 查询所关联的口味
-
-        List<DishFlavor> dishFlavors = dishFlavorMapper.getById(id);
-
-        //  将数据封装到 VO 对象
-        DishVO dishVO = new DishVO();
-        BeanUtils.copyProperties(dish, dishVO);
-        dishVO.setFlavors(dishFlavors);
+        if (dish == null) {
+            return null;
+        }
 
-        //  返回对象
-        return dishVO;
+        //  查询所关联的口味, 并将数据封装到 VO 对象
+        return getDishVOList(Collections.singletonList(dish)).get(0);
     }
 
     /**
@@ -198,8 +196,10 @@ public class DishServiceImpl implements DishService {
      *
      * @param status
      * @param id
+     * @return 被停售的套餐所属的分类 id
      */
-    public void startOrStop(Integer status, Long id) {
+    @Transactional
+    public List<Long> startOrStop(Integer status, Long id) {
 
           /*这里动用查询操作不太好, 我们仅仅是更新状态
           没有必要从数据库中把所有要更改的数据拿出来
@@ -216,36 +216,24 @@ public class DishServiceImpl implements DishService {
         //  dishMapper.setStatus(status, id);
 
         //  如果该菜品停售了, 那么与该菜品关联的套餐也要停售
-        if (Objects.equals(status, StatusConstant.DISABLE)) {
-
-            ArrayList<Long> dishIds = new ArrayList<>();
-            dishIds.add(id);
-
-            //  这里得到的是所有与该菜品关联的套餐 id
-            List<Long> setMeanIds = setMealDishMapper.getSetMealIdByDishIds(dishIds);
-
-            //  这里要做的就是根据套餐的 id 来跟新套餐的状态了
-            if (setMeanIds != null && setMeanIds.size() > 0) {
-
-                /*
-                    这里我们依旧不采用从数据库中查询的手段
-                    而是直接 builder 一个套餐对象, 把他对应的 id 和 status 给他
-                    之后直接更新套餐即可
-                 */
-                for (Long setMeanId : setMeanIds) {
-                    Setmeal setMeal = Setmeal.builder()
-                            .id(setMeanId)
-                            .status(StatusConstant.DISABLE)
-                            .build();
-                    //  创建好套餐对象后直接更新套餐
-                    setMealDishMapper.update(setMeal);
-                }
-            }
-
+        if (!Objects.equals(status, StatusConstant.DISABLE)) {
+            return new ArrayList<>();
+        }
 
+        //  先记下受影响的套餐所属的分类, 只清理这些分类的套餐缓存
+        List<Long> categoryIds = setmealMapper.getCategoryIdsByDishId(id, StatusConstant.ENABLE);
+        if (categoryIds.isEmpty()) {
+            return categoryIds;
         }
 
+        //  通过 setmeal_dish 关联, 一条语句停售所有包含该菜品的套餐
+        Setmeal setmeal = Setmeal.builder()
+                .status(StatusConstant.DISABLE)
+                .build();
+        int count = setmealMapper.updateStatusByDishId(setmeal, id);
+        log.info("菜品停售, 同时停售套餐 {} 个: dishId = {}", count, id);
 
+        return categoryIds;
     }
 
     /**
@@ -283,17 +271,31 @@ public class DishServiceImpl implements DishService {
      */
     public List<DishVO> listWithFlavor(Dish dish) {
         List<Dish> dishList = dishMapper.list(dish);
+        return getDishVOList(dishList);
+    }
 
+    /**
+     * 将菜品封装为带口味的 VO 对象
+     * 所有菜品的口味通过一条 in 查询取出, 而不是每个菜品查询一次
+     *
+     * @param dishList
+     * @return
+     */
+    private List<DishVO> getDishVOList(List<Dish> dishList) {
         List<DishVO> dishVOList = new ArrayList<>();
+        if (dishList == null || dishList.isEmpty()) {
+            return dishVOList;
+        }
+
+        //  根据菜品 id 批量查询口味, 并按菜品 id 分组
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
 
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
-            BeanUtils.copyProperties(d,dishVO);
-
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getById(d.getId());
-
-            dishVO.setFlavors(flavors);
+            BeanUtils.copyProperties(d, dishVO);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
             dishVOList.add(dishVO);
         }
 
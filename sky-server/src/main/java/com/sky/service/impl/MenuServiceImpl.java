@@ -0,0 +1,139 @@
+package com.sky.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.cache.CacheNamespace;
+import com.sky.cache.MenuSnapshot;
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.mapper.CategoryMapper;
+import com.sky.result.Result;
+import com.sky.service.DishService;
+import com.sky.service.MenuService;
+import com.sky.service.SetMealService;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuCategoryVO;
+import com.sky.vo.MenuVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 整个菜单的快照
+ * <p>
+ * 菜单在 Redis 中维护一个版本号 (cache:gen:menu), 管理端修改分类, 菜品或套餐时版本号加一
+ * 每个实例在本地保存一份快照, 请求时只比较版本号, 版本号变化后才重新查询数据库并生成快照
+ */
+@Service
+@Slf4j
+public class MenuServiceImpl implements MenuService {
+
+    //  与 WebMvcConfiguration 中的消息转换器使用同一个对象映射器, 保证日期等格式和其他接口一致
+    private static final ObjectMapper OBJECT_MAPPER = new JacksonObjectMapper();
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetMealService setMealService;
+    @Autowired
+    private CacheNamespace cacheNamespace;
+
+    private volatile MenuSnapshot snapshot;
+
+    /**
+     * 获取整个菜单的快照
+     *
+     * @return
+     */
+    public MenuSnapshot getSnapshot() {
+        long generation = cacheNamespace.generation(CacheConstant.MENU_NAMESPACE);
+        MenuSnapshot current = snapshot;
+        if (current != null && current.getGeneration() == generation) {
+            return current;
+        }
+
+        synchronized (this) {
+            //  其他线程可能已经生成了同一版本的快照
+            current = snapshot;
+            if (current == null || current.getGeneration() != generation) {
+                current = build(generation);
+                snapshot = current;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 菜单版本号加一
+     */
+    public void invalidate() {
+        cacheNamespace.invalidateAll(CacheConstant.MENU_NAMESPACE);
+    }
+
+    /**
+     * 查询菜单并生成快照: 分类, 菜品 (带口味), 套餐 各查询一次
+     *
+     * @param generation
+     * @return
+     */
+    private MenuSnapshot build(long generation) {
+        List<Category> categories = categoryMapper.list(null);
+
+        Dish dishQuery = Dish.builder().status(StatusConstant.ENABLE).build();
+        Map<Long, List<DishVO>> dishMap = dishService.listWithFlavor(dishQuery).stream()
+                .collect(Collectors.groupingBy(DishVO::getCategoryId));
+
+        Setmeal setmealQuery = Setmeal.builder().status(StatusConstant.ENABLE).build();
+        Map<Long, List<Setmeal>> setmealMap = setMealService.list(setmealQuery).stream()
+                .collect(Collectors.groupingBy(Setmeal::getCategoryId));
+
+        List<MenuCategoryVO> categoryVOList = new ArrayList<>();
+        for (Category category : categories) {
+            categoryVOList.add(MenuCategoryVO.builder()
+                    .id(category.getId())
+                    .type(category.getType())
+                    .name(category.getName())
+                    .sort(category.getSort())
+                    .dishes(dishMap.getOrDefault(category.getId(), new ArrayList<>()))
+                    .setmeals(setmealMap.getOrDefault(category.getId(), new ArrayList<>()))
+                    .build());
+        }
+
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(Result.success(new MenuVO(categoryVOList)));
+            byte[] gzip = gzip(json);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            log.info("生成菜单快照: 版本 {}, 分类 {} 个, json {} 字节, gzip {} 字节",
+                    generation, categoryVOList.size(), json.length, gzip.length);
+            return new MenuSnapshot(generation, etag, json, gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -6,6 +6,8 @@ import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.xiaoymin.knife4j.core.util.CollectionUtils;
+import com.sky.cache.CatalogCache;
+import com.sky.cart.ShoppingCartStore;
 import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.*;
@@ -14,9 +16,14 @@ import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.OrderService;
+import com.sky.service.PaymentTimeoutService;
+import com.sky.service.ShoppingCartService;
 import com.sky.utils.HttpClientUtil;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
@@ -30,10 +37,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,12 +53,18 @@ import java.util.stream.Collectors;
 @Service
 @Slf4j
 public class OrderServiceImpl implements OrderService {
+
+    //  游标分页时, 总记录数最多统计到这个数量
+    private static final int CURSOR_TOTAL_CAP = 10000;
+    //  游标分页时, 每页最多返回的订单数
+    private static final int CURSOR_MAX_PAGE_SIZE = 50;
+
     @Autowired
     private OrdersMapper orderMapper;   //  操作订单表
     @Autowired
     private OrderDetailMapper orderDetailMapper;    //  操作订单明细表
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;  //  购物车相关操作
+    private ShoppingCartStore shoppingCartStore;  //  购物车相关操作
     @Autowired
     private AddressBookMapper addressBookMapper;    //  地址簿相关操作
     @Autowired
@@ -58,21 +73,38 @@ public class OrderServiceImpl implements OrderService {
     private UserMapper userMapper;
     @Autowired
     private WebSocketServer webSocketServer;
+    @Autowired
+    private BusinessStatsService businessStatsService;    //  每日营业数据汇总
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;    //  订单号生成器
+    @Autowired
+    private PaymentTimeoutService paymentTimeoutService;  //  支付超时延时队列
+    @Autowired
+    private CatalogCache catalogCache;                    //  菜品和套餐的本地缓存
+    @Autowired
+    private TransactionTemplate transactionTemplate;      //  编程式事务, 只包住写操作
 
     @Value("${sky.shop.address}")
     private String shopAddress;
 
+    @Value("${sky.shop.delivery-fee}")
+    private BigDecimal deliveryFee;
+
+    @Value("${sky.shop.pack-fee}")
+    private Integer packFee;
+
     @Value("${sky.baidu.ak}")
     private String ak;
 
 
     /**
      * 用户提交订单
+     * 地址簿, 购物车和商品信息的读取以及订单数据的组装都在事务之外完成,
+     * 事务中只插入订单和订单明细, 尽量缩短占用数据库连接的时间
      *
      * @param ordersSubmitDTO
      * @return
      */
-    @Transactional
     public OrderSubmitVO submitOrder(OrdersSubmitDTO ordersSubmitDTO) {
         //  先把基本的业务逻辑梳理一下
 
@@ -91,51 +123,86 @@ public class OrderServiceImpl implements OrderService {
         //  判断购物车中的数据是否为空
         //  获取当前登陆用户 id
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart
-                .builder()
-                .userId(userId)
-                .build();
-        List<ShoppingCart> shoppingCarts = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCarts = shoppingCartStore.list(userId);
 
         if (shoppingCarts == null || shoppingCarts.size() == 0) {
             //  购物车商品为空, 不能提交订单, 抛出业务异常
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
-        //  向订单表中插入一条数据
+
+        //  把购物车数据改造为订单明细数据, 同时计算订单金额
+        //  名称, 图片, 单价以菜品或套餐当前的数据为准, 从本地缓存中读取
+        List<OrderDetail> orderDetails = new ArrayList<>();
+        BigDecimal amount = BigDecimal.ZERO;
+        int itemCount = 0;
+        for (ShoppingCart cart : shoppingCarts) {
+            if (!catalogCache.refreshCartItem(cart)) {
+                //  商品已经被删除
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+            }
+            //  单个商品的数量有上限, 份数和打包费的计算不会溢出
+            if (cart.getNumber() > ShoppingCartService.MAX_ITEM_NUMBER) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_NUMBER_EXCEEDED);
+            }
+            OrderDetail orderDetail = new OrderDetail();
+            BeanUtils.copyProperties(cart, orderDetail);
+            orderDetails.add(orderDetail);
+            amount = amount.add(cart.getAmount().multiply(BigDecimal.valueOf(cart.getNumber())));
+            itemCount += cart.getNumber();
+        }
+        //  打包费按商品份数计算, 每份 packFee 元
+        int packAmount = itemCount * packFee;
+        //  订单金额 = 商品金额 + 打包费 + 配送费
+        amount = amount.add(BigDecimal.valueOf(packAmount)).add(deliveryFee);
+        //  前端展示给用户的金额和实际金额不一致 (比如下单前商品改价了), 不能按用户没确认过的金额下单
+        if ((ordersSubmitDTO.getPackAmount() != null && ordersSubmitDTO.getPackAmount() != packAmount)
+                || (ordersSubmitDTO.getAmount() != null && ordersSubmitDTO.getAmount().compareTo(amount) != 0)) {
+            log.warn("订单金额与前端计算的金额不一致: userId = {}, 前端金额 = {}, 前端打包费 = {}, 实际金额 = {}, 实际打包费 = {}",
+                    userId, ordersSubmitDTO.getAmount(), ordersSubmitDTO.getPackAmount(), amount, packAmount);
+            throw new OrderBusinessException(MessageConstant.ORDER_AMOUNT_CHANGED);
+        }
 
         //  我们传入的是 DTO, 而要向订单表里面插入的数据为 Order, 怎么办? 赋值呗
         Orders order = new Orders();
         //  属性拷贝
         //  ----------  这里偷个懒, 直接复制老师的代码了 ------------
-        BeanUtils.copyProperties(ordersSubmitDTO, order);
+        //  金额和打包费以服务端计算的为准
+        BeanUtils.copyProperties(ordersSubmitDTO, order, "amount", "packAmount");
+        order.setAmount(amount);
+        order.setPackAmount(packAmount);
         order.setPhone(addressBook.getPhone());
         order.setAddress(addressBook.getDetail());
         order.setConsignee(addressBook.getConsignee());
-        order.setNumber(String.valueOf(System.currentTimeMillis()));
+        //  同一毫秒或多个实例下单也不会生成重复的订单号
+        order.setNumber(orderNumberGenerator.nextNumber());
         order.setUserId(userId);
         order.setStatus(Orders.PENDING_PAYMENT);
         order.setPayStatus(Orders.UN_PAID);
         order.setOrderTime(LocalDateTime.now());
-        //  插入数据
-        orderMapper.insert(order);
 
-        //  向订单明细表中插入 n 条数据
-        //  先把这些数据查询出来吧, 可是在上面我们已经查询过购物车的数据了
-        //  既然没有抛异常, 那么就说明一定有值, 可以直接使用的
-        ArrayList<OrderDetail> orderDetails = new ArrayList<>();
-        for (ShoppingCart cart : shoppingCarts) {
-            //  这里得到的是购物车数据, 我们要把他改造为订单明细数据
-            OrderDetail orderDetail = new OrderDetail();
-            BeanUtils.copyProperties(cart, orderDetail);
-            orderDetail.setOrderId(order.getId());
-            orderDetails.add(orderDetail);
+        //  事务中只插入订单和订单明细, 并累加当天的订单总数
+        transactionTemplate.executeWithoutResult(status -> {
+            orderMapper.insert(order);
+            orderDetails.forEach(orderDetail -> orderDetail.setOrderId(order.getId()));
+            orderDetailMapper.insertBatch(orderDetails);
+            businessStatsService.recordOrderSubmitted(order);
+        });
+
+        //  订单已经提交, 之后的操作失败也不能让用户看到下单失败, 否则重试会生成第二个订单
+        //  订单提交成功后, 登记支付截止时间, 超时未支付会被自动取消
+        //  登记失败时由 OrderTask 每 30 分钟一次的超时检查兜底
+        try {
+            paymentTimeoutService.register(order);
+        } catch (Exception e) {
+            log.error("登记订单支付截止时间失败: orderId = {}", order.getId(), e);
         }
-        //  插入 n 条订单明细数据
-        orderDetailMapper.insertBatch(orderDetails);
-
-
         //  清空购物车数据
-        shoppingCartMapper.deleteShoppingCart(shoppingCarts.get(0));
+        try {
+            shoppingCartStore.clear(userId);
+        } catch (Exception e) {
+            log.error("下单后清空购物车失败: userId = {}, orderId = {}", userId, order.getId(), e);
+        }
+
         //  封装 vo 对象
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(order.getId())
@@ -200,6 +267,9 @@ public class OrderServiceImpl implements OrderService {
 
         orderMapper.update(orders);
 
+        //  已经支付, 不再需要超时取消
+        paymentTimeoutService.remove(ordersDB.getId());
+
         /*   这个目前没有用着
                 这里是提醒商家接单的业务功能
                 通过 Map 构建 json
@@ -243,12 +313,11 @@ public class OrderServiceImpl implements OrderService {
         ArrayList<OrderVO> list = new ArrayList<>();
 
         if (page != null && page.size() > 0) {
+            //  一次性查出本页所有订单的明细, 再按订单 id 分组, 避免每个订单都查一次数据库
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page);
             for (Orders orders : page) {
-                //  根据订单查询订单明细
-                //  获得订单 id
-                Long ordersId = orders.getId();
-                //  根据订单 id 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(ordersId);
+                //  根据订单 id 取出对应的订单明细
+                List<OrderDetail> orderDetails = orderDetailMap.getOrDefault(orders.getId(), Collections.emptyList());
                 /*
                     这里终于是搞明白了
                     原来 OrderVo 继承了 Order!!!!
@@ -268,6 +337,35 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), list);
     }
 
+    /**
+     * 历史订单游标分页查询
+     *
+     * @param cursor
+     * @param pageSize
+     * @param status
+     * @return
+     */
+    public CursorPageResult pageQueryByCursor(String cursor, Integer pageSize, Integer status) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setCursor(cursor);
+        ordersPageQueryDTO.setPageSize(pageSize == null ? 0 : pageSize);
+
+        //  和 pageQuery 一样, 每个订单都带上订单明细
+        return queryByCursor(ordersPageQueryDTO, ordersList -> {
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+            List<OrderVO> list = new ArrayList<>();
+            for (Orders orders : ordersList) {
+                OrderVO orderVO = new OrderVO();
+                BeanUtils.copyProperties(orders, orderVO);
+                orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), Collections.emptyList()));
+                list.add(orderVO);
+            }
+            return list;
+        });
+    }
+
     /**
      * 查看订单详情
      *
@@ -410,11 +508,16 @@ public class OrderServiceImpl implements OrderService {
             shoppingCart.setUserId(userId);
             shoppingCart.setCreateTime(LocalDateTime.now());
 
+            // 名称, 图片, 单价以菜品或套餐当前的数据为准, 已经删除的商品不再加入购物车
+            if (!catalogCache.refreshCartItem(shoppingCart)) {
+                continue;
+            }
+
             // 将购物车对象添加到购物车列表中
             shoppingCartList.add(shoppingCart);
         }
 
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        shoppingCartStore.addAll(userId, shoppingCartList);
 
 
     }
@@ -464,17 +567,82 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), orderVOList);
     }
 
-    private List<OrderVO> getOrderVOList(Page<Orders> page) {
+    /**
+     * 根据条件游标分页查询订单
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        return queryByCursor(ordersPageQueryDTO, this::getOrderVOList);
+    }
+
+    /**
+     * 游标分页查询订单, 按 (下单时间, id) 倒序
+     *
+     * @param ordersPageQueryDTO
+     * @param toOrderVOList      将本页订单转换为 OrderVO
+     * @return
+     */
+    private CursorPageResult queryByCursor(OrdersPageQueryDTO ordersPageQueryDTO,
+                                           Function<List<Orders>, List<OrderVO>> toOrderVOList) {
+        //  每页数量由前端传入, 限制上限, 避免一次请求查出全部历史订单
+        int pageSize = ordersPageQueryDTO.getPageSize() > 0 ? ordersPageQueryDTO.getPageSize() : 10;
+        pageSize = Math.min(pageSize, CURSOR_MAX_PAGE_SIZE);
+
+        //  解析游标: 上一页最后一条订单的 "下单时间_id"
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        String cursor = ordersPageQueryDTO.getCursor();
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                int index = cursor.lastIndexOf('_');
+                cursorTime = LocalDateTime.parse(cursor.substring(0, index));
+                cursorId = Long.valueOf(cursor.substring(index + 1));
+            } catch (RuntimeException e) {
+                throw new OrderBusinessException(MessageConstant.PAGE_CURSOR_INVALID);
+            }
+        }
+
+        //  多查一条, 用来判断是否还有下一页
+        List<Orders> ordersList = orderMapper.pageQueryByCursor(ordersPageQueryDTO, cursorTime, cursorId, pageSize + 1);
+        boolean hasMore = ordersList.size() > pageSize;
+        if (hasMore) {
+            ordersList = ordersList.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Orders last = ordersList.get(ordersList.size() - 1);
+            nextCursor = last.getOrderTime() + "_" + last.getId();
+        }
+
+        //  总记录数只在第一页按需统计, 并且最多数到 CURSOR_TOTAL_CAP 条, 避免大表上的全量 count
+        Long total = null;
+        if (cursorTime == null && Boolean.TRUE.equals(ordersPageQueryDTO.getWithTotal())) {
+            total = orderMapper.countWithCap(ordersPageQueryDTO, CURSOR_TOTAL_CAP);
+        }
+
+        return CursorPageResult.builder()
+                .records(toOrderVOList.apply(ordersList))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .total(total)
+                .build();
+    }
+
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList) {
         // 需要返回订单菜品信息，自定义OrderVO响应结果
         List<OrderVO> orderVOList = new ArrayList<>();
 
-        List<Orders> ordersList = page.getResult();
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 批量查询本页订单的菜品详情，按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
             for (Orders orders : ordersList) {
                 // 将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                String orderDishes = getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), Collections.emptyList()));
 
                 // 将订单菜品信息封装到orderVO中，并添加到orderVOList
                 orderVO.setOrderDishes(orderDishes);
@@ -485,15 +653,12 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
+     * 根据订单菜品详情获取菜品信息字符串
      *
-     * @param orders
+     * @param orderDetailList
      * @return
      */
-    private String getOrderDishesStr(Orders orders) {
-        // 查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
-
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
         // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -504,6 +669,23 @@ public class OrderServiceImpl implements OrderService {
         return String.join("", orderDishList);
     }
 
+    /**
+     * 根据订单列表批量查询订单明细, 并按订单 id 分组
+     *
+     * @param ordersList
+     * @return
+     */
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        //  一条 sql 查出所有订单的明细, 语句数量不随页面大小增长
+        List<OrderDetail> orderDetails = orderDetailMapper.getByOrderIds(orderIds);
+        return orderDetails.stream().collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
+
     /**
      * 各个状态的订单数量统计
      *
@@ -511,10 +693,12 @@ public class OrderServiceImpl implements OrderService {
      */
     public OrderStatisticsVO statistics() {
 
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 一次分组查询出各个状态的订单数量，再取出待接单、待派送、派送中的订单数量
+        Map<Integer, Integer> statusCountMap = orderMapper.countGroupByStatus(null, null).stream()
+                .collect(Collectors.toMap(OrderStatusCountDTO::getStatus, OrderStatusCountDTO::getCount));
+        Integer toBeConfirmed = statusCountMap.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
+        Integer confirmed = statusCountMap.getOrDefault(Orders.CONFIRMED, 0);
+        Integer deliveryInProgress = statusCountMap.getOrDefault(Orders.DELIVERY_IN_PROGRESS, 0);
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -647,6 +831,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void completeOrder(Long id) {
         //  从数据库中查询订单
         Orders orderDB = orderMapper.getById(id);
@@ -662,8 +847,14 @@ public class OrderServiceImpl implements OrderService {
         orders.setStatus(Orders.COMPLETED);
         orders.setDeliveryTime(LocalDateTime.now());
 
-        //  执行更新
-        orderMapper.update(orders);
+        //  执行更新, 只更新仍在派送中的订单, 重复点击或者与定时任务同时完成时只有一次能更新成功
+        int updated = orderMapper.updateStatusByIds(Collections.singletonList(id), Orders.DELIVERY_IN_PROGRESS, orders);
+        if (updated != 1) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        //  累加下单当天的有效订单数和营业额
+        businessStatsService.recordOrderCompleted(orderDB);
     }
 
 
@@ -0,0 +1,81 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Orders;
+import com.sky.service.PaymentTimeoutService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 支付超时订单的延时队列
+ * <p>
+ * 下单时把订单 id 放入 Redis 有序集合, score 为支付截止时间, 支付成功时从集合中移除
+ * 集合保存在 Redis 中, 服务重启不会丢失
+ * 订单 id 以字符串保存, 不受 Redis 值序列化方式的影响
+ */
+@Service
+public class PaymentTimeoutServiceImpl implements PaymentTimeoutService {
+
+    private static final String KEY = "order:payment_deadline";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 登记订单的支付截止时间
+     *
+     * @param orders
+     */
+    public void register(Orders orders) {
+        LocalDateTime deadline = orders.getOrderTime().plusMinutes(PAYMENT_TIMEOUT_MINUTES);
+        stringRedisTemplate.opsForZSet().add(KEY, orders.getId().toString(), toEpochMilli(deadline));
+    }
+
+    /**
+     * 订单已支付, 从延时队列中移除
+     *
+     * @param orderId
+     */
+    public void remove(Long orderId) {
+        stringRedisTemplate.opsForZSet().remove(KEY, orderId.toString());
+    }
+
+    /**
+     * 查询支付截止时间已到的订单
+     *
+     * @param limit
+     * @return
+     */
+    public List<Long> getExpired(int limit) {
+        Set<String> expired = stringRedisTemplate.opsForZSet().rangeByScore(KEY, 0, System.currentTimeMillis(), 0, limit);
+        List<Long> ids = new ArrayList<>();
+        if (expired != null) {
+            for (String id : expired) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 从延时队列中移除已经处理过的订单
+     *
+     * @param orderIds
+     */
+    public void removeAll(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().remove(KEY, orderIds.stream().map(String::valueOf).toArray());
+    }
+
+    private long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
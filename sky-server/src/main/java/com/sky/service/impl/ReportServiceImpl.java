@@ -1,14 +1,20 @@
 package com.sky.service.impl;
 
 import com.sky.dto.GoodsSalesDTO;
-import com.sky.entity.Orders;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.mapper.OrdersMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.ReportService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFCell;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -23,6 +29,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,12 +44,21 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    //  报表模板中明细数据的第一行 (第8行)
+    private static final int DETAIL_FIRST_ROW = 7;
+    //  明细数据的最后一列
+    private static final int DETAIL_LAST_CELL = 6;
+    //  流式写入 Excel 时内存中保留的行数
+    private static final int ROW_ACCESS_WINDOW = 100;
+
     @Autowired
     private OrdersMapper ordersMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
     private WorkspaceService workspaceService;
+    @Autowired
+    private BusinessStatsService businessStatsService;
 
     /**
      * 营业额统计
@@ -56,34 +72,17 @@ public class ReportServiceImpl implements ReportService {
         //  获取 dateList 数据
         //  这里采用的思路为: 先将 begin ~ end 日期的数据添加到 list 集合里
         //  然后再将集合里的数据转化为 String, 中间以 ',' 分隔
-        ArrayList<LocalDate> dataList = new ArrayList<>();
-        dataList.add(begin);
-
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dataList.add(begin);
-        }
+        List<LocalDate> dataList = getDateList(begin, end);
         String str = StringUtils.join(dataList, ',');
 
+        //  获取时间段内每天的营业数据 (历史日期读汇总表, 今天实时统计)
+        Map<LocalDate, DailyBusinessStats> dailyMap = businessStatsService.getDailyStats(begin, end);
 
         ArrayList<Double> turnoverList = new ArrayList<>();
         //  获取 turnoverList 数据
+        //  假如当天没有营业, 汇总数据为 0
         for (LocalDate localDate : dataList) {
-            //  遍历日期, 获取查询起始时间, 终止时间
-            LocalDateTime beginTime = LocalDateTime.of(localDate, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(localDate, LocalTime.MAX);
-
-            //  这里采用构建一个 Map 的方式来传输对象
-            Map<Object, Object> hashMap = new HashMap<>();
-            hashMap.put("begin", beginTime);
-            hashMap.put("end", endTime);
-            hashMap.put("status", Orders.COMPLETED);
-
-            Double turnover = ordersMapper.getSumTurnover(hashMap);
-
-            //  假如当天没有营业
-            turnover = turnover == null ? 0.0 : turnover;
-            turnoverList.add(turnover);
+            turnoverList.add(dailyMap.get(localDate).getTurnover());
         }
         String turnoverStr = StringUtils.join(turnoverList, ',');
 
@@ -103,41 +102,29 @@ public class ReportServiceImpl implements ReportService {
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
 
         //  构建日期列表
-        List<LocalDate> dataList = new ArrayList<>();
-        dataList.add(begin);
+        List<LocalDate> dataList = getDateList(begin, end);
 
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dataList.add(begin);
-        }
+        //  获取时间段内每天的新增用户数 (历史日期读汇总表, 今天实时统计)
+        Map<LocalDate, DailyBusinessStats> dailyMap = businessStatsService.getDailyStats(begin, end);
+
+        //  查询起始日期之前的用户总数, 之后每天的用户总数在此基础上累加即可
+        //  select count(id) from user where create_time < ?
+        Map<Object, Object> map = new HashMap<>();
+        map.put("end", LocalDateTime.of(begin, LocalTime.MIN));
+        Integer totalUser = userMapper.getUserStatistics(map);
 
         //  构建新增用户列表
-        //  select count(id) from user where create_time > ? and create_time < ?
         List<Integer> newUserList = new ArrayList<>();
 
-        //  构建用户总数列表
-        //  select count(id) from user where create_time < ?
+        //  构建用户总数列表 (起始日期之前的用户总数 + 之后每天的新增用户数)
         List<Integer> totalUserList = new ArrayList<>();
 
         for (LocalDate date : dataList) {
-            //  转化为 LocalDateTime 类型的数据
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            //  封装 Map 对象进行查询
-            Map<Object, Object> map = new HashMap<>();
-            map.put("end", endTime);
-
-            //  这里先查询总的用户数量
-            Integer totalUser = userMapper.getUserStatistics(map);
-
-            //  这里查询当天新增用户数量
-            map.put("begin", beginTime);
-            Integer newUser = userMapper.getUserStatistics(map);
+            Integer newUser = dailyMap.get(date).getNewUsers();
+            totalUser += newUser;
 
             newUserList.add(newUser);
             totalUserList.add(totalUser);
-
         }
 
         return UserReportVO
@@ -159,35 +146,25 @@ public class ReportServiceImpl implements ReportService {
     public OrderReportVO getOrdersStatistics(LocalDate begin, LocalDate end) {
 
         //  构建日期列表
-        List<LocalDate> dataList = new ArrayList<>();
-        dataList.add(begin);
+        List<LocalDate> dataList = getDateList(begin, end);
+
+        //  获取时间段内每天的订单数据 (历史日期读汇总表, 今天实时统计)
+        Map<LocalDate, DailyBusinessStats> dailyMap = businessStatsService.getDailyStats(begin, end);
 
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dataList.add(begin);
-        }
         Integer totalOrders = 0;
         Integer validOrders = 0;
         ArrayList<Integer> orderCountList = new ArrayList<>();
         ArrayList<Integer> validOrderCountList = new ArrayList<>();
 
-        //  根据日期查询订单
+        //  逐日取出订单数据
         for (LocalDate date : dataList) {
-            //  转化为 LocalDateTime 类型
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            //  需要用到的查询条件封装到 Map 集合里面
-            HashMap<Object, Object> map = new HashMap<>();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
+            DailyBusinessStats daily = dailyMap.get(date);
 
-            //  查询当天所有订单数
-            Integer todayTotalOrder = ordersMapper.getByStatusAndOrderTime(map);
+            //  当天所有订单数
+            Integer todayTotalOrder = daily.getOrderCount();
 
-            //  查询当天有效订单数
-            map.put("status", Orders.COMPLETED);
-            Integer todayValidOrder = ordersMapper.getByStatusAndOrderTime(map);
+            //  当天有效订单数
+            Integer todayValidOrder = daily.getValidOrderCount();
 
             //  计算订单总数/有效订单数 (当天订单数相加)
             totalOrders += todayTotalOrder;
@@ -224,6 +201,24 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
+    /**
+     * 构建 begin ~ end 的日期列表 (包含两端)
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    private List<LocalDate> getDateList(LocalDate begin, LocalDate end) {
+        List<LocalDate> dataList = new ArrayList<>();
+        dataList.add(begin);
+
+        while (!begin.equals(end)) {
+            begin = begin.plusDays(1);
+            dataList.add(begin);
+        }
+        return dataList;
+    }
+
     /**
      * 查询销量排名top10
      *
@@ -249,22 +244,26 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出近30天的运营数据报表
+     * 导出指定日期范围的运营数据报表
      *
+     * @param begin
+     * @param end
      * @param response
      **/
-    public void exportBusinessData(HttpServletResponse response) {
-        LocalDate begin = LocalDate.now().minusDays(30);
-        LocalDate end = LocalDate.now().minusDays(1);
-        //查询概览运营数据，提供给Excel模板文件
-        BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(begin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX));
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
+        //  一次取出整个时间段每天的运营数据, 概览数据由每日数据汇总得到
+        Map<LocalDate, DailyBusinessStats> dailyMap = businessStatsService.getDailyStats(begin, end);
+        BusinessDataVO businessData = businessStatsService.summarize(dailyMap.values());
+
         InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
+        SXSSFWorkbook excel = null;
         try {
-            //基于提供好的模板文件创建一个新的Excel表格对象
-            XSSFWorkbook excel = new XSSFWorkbook(inputStream);
+            //基于提供好的模板文件创建一个新的Excel表格对象, 模板本身只有几十行, 可以放在内存中
+            XSSFWorkbook template = new XSSFWorkbook(inputStream);
             //获得Excel文件中的一个Sheet页
-            XSSFSheet sheet = excel.getSheet("Sheet1");
+            XSSFSheet sheet = template.getSheet("Sheet1");
 
+            //概览数据写在模板已有的行中
             sheet.getRow(1).getCell(1).setCellValue(begin + "至" + end);
             //获得第4行
             XSSFRow row = sheet.getRow(3);
@@ -275,28 +274,74 @@ public class ReportServiceImpl implements ReportService {
             row = sheet.getRow(4);
             row.getCell(2).setCellValue(businessData.getValidOrderCount());
             row.getCell(4).setCellValue(businessData.getUnitPrice());
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = begin.plusDays(i);
+
+            //记下明细行的单元格样式, 然后删掉模板中预留的明细行
+            //SXSSF 只能在模板已有行之后追加新行
+            XSSFRow detailTemplateRow = sheet.getRow(DETAIL_FIRST_ROW);
+            CellStyle[] detailStyles = new CellStyle[DETAIL_LAST_CELL + 1];
+            for (int i = 1; i <= DETAIL_LAST_CELL; i++) {
+                detailStyles[i] = detailTemplateRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet.getLastRowNum(); i >= DETAIL_FIRST_ROW; i--) {
+                XSSFRow templateRow = sheet.getRow(i);
+                if (templateRow != null) {
+                    sheet.removeRow(templateRow);
+                }
+            }
+
+            //明细数据通过流式工作簿写入, 内存中最多只保留 ROW_ACCESS_WINDOW 行, 其余行写入临时文件
+            excel = new SXSSFWorkbook(template, ROW_ACCESS_WINDOW);
+            SXSSFSheet detailSheet = excel.getSheet("Sheet1");
+            int rowIndex = DETAIL_FIRST_ROW;
+            for (DailyBusinessStats daily : dailyMap.values()) {
                 //准备明细数据
-                businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-                row = sheet.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData.getTurnover());
-                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData.getUnitPrice());
-                row.getCell(6).setCellValue(businessData.getNewUsers());
+                BusinessDataVO dailyData = businessStatsService.summarize(Collections.singletonList(daily));
+
+                SXSSFRow detailRow = detailSheet.createRow(rowIndex++);
+                createCell(detailRow, 1, detailStyles).setCellValue(daily.getStatDate().toString());
+                createCell(detailRow, 2, detailStyles).setCellValue(dailyData.getTurnover());
+                createCell(detailRow, 3, detailStyles).setCellValue(dailyData.getValidOrderCount());
+                createCell(detailRow, 4, detailStyles).setCellValue(dailyData.getOrderCompletionRate());
+                createCell(detailRow, 5, detailStyles).setCellValue(dailyData.getUnitPrice());
+                createCell(detailRow, 6, detailStyles).setCellValue(dailyData.getNewUsers());
             }
+
             //通过输出流将文件下载到客户端浏览器中
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment;filename=business_data_" + begin + "_" + end + ".xlsx");
             ServletOutputStream out = response.getOutputStream();
             excel.write(out);
             //关闭资源
             out.flush();
             out.close();
-            excel.close();
-
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            if (excel != null) {
+                //删除流式写入产生的临时文件
+                excel.dispose();
+                try {
+                    excel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在明细行中创建单元格, 并沿用模板明细行的样式
+     *
+     * @param row
+     * @param column
+     * @param styles
+     * @return
+     */
+    private SXSSFCell createCell(SXSSFRow row, int column, CellStyle[] styles) {
+        SXSSFCell cell = row.createCell(column);
+        if (styles[column] != null) {
+            cell.setCellStyle(styles[column]);
         }
+        return cell;
     }
 }
@@ -94,25 +94,23 @@ public class SetMealServiceImpl implements SetMealService {
      * 批量删除套餐
      * @param ids
      */
+    @Transactional
     public void deleteByIds(List<Long> ids) {
-
-        //  这里假定套餐起售状态不能删除
-        for (Long id : ids) {
-            Setmeal setmeal = setmealMapper.getById(id);
-
-            if (Objects.equals(setmeal.getStatus(), StatusConstant.ENABLE)) {
-                throw new DeletionNotAllowedException(MessageConstant.SETMEAL_ON_SALE);
-            }
+        //  没有要删除的套餐, 空的 in () 会导致 sql 语法错误
+        if (ids == null || ids.isEmpty()) {
+            return;
         }
 
-
-        for (Long setmealId : ids) {
-            setmealMapper.deleteByIds(setmealId);
-            log.info("删除关联的数据: {}", setmealId);
-            setMealDishMapper.deleteBySetMealId(setmealId);
+        //  这里假定套餐起售状态不能删除
+        Integer onSaleCount = setmealMapper.countByIdsAndStatus(ids, StatusConstant.ENABLE);
+        if (onSaleCount != null && onSaleCount > 0) {
+            throw new DeletionNotAllowedException(MessageConstant.SETMEAL_ON_SALE);
         }
 
-
+        //  套餐和关联的菜品各用一条 in 语句批量删除
+        setmealMapper.deleteBatch(ids);
+        log.info("删除关联的数据: {}", ids);
+        setMealDishMapper.deleteBySetMealIds(ids);
     }
 
     /**
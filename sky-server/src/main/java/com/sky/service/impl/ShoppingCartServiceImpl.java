@@ -1,20 +1,26 @@
 package com.sky.service.impl;
 
+import com.sky.cache.CatalogCache;
+import com.sky.cart.ShoppingCartChange;
+import com.sky.cart.ShoppingCartStore;
+import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
+import com.sky.dto.ShoppingCartOperationDTO;
 import com.sky.entity.Dish;
 import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
-import com.sky.mapper.DishMapper;
-import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.service.ShoppingCartService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @Author: dy
@@ -24,12 +30,13 @@ import java.util.List;
 @Service
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
+    //  一次批量修改最多包含的操作数
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
-    @Autowired
-    private DishMapper dishMapper;
+    private ShoppingCartStore shoppingCartStore;
     @Autowired
-    private SetmealMapper setmealMapper;
+    private CatalogCache catalogCache;
 
     /**
      * 添加购物车
@@ -42,48 +49,14 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         //  拷贝属性
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
         //  设置用户 id
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-
-        //  判断当前商品是否已经在购物车
-        //  这里的 list 方法是根据条件动态查询购物车数据, 得到的结果可能不止一个
-        //  所以这里的返回值我们使用 List 来接收 (当然, 这里得到的结果最多只有一条, 但还是要用 List 来接收)
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
-
-        if (shoppingCartList != null && shoppingCartList.size() > 0) {
-            //  如果已经存在, 那么我们就更新数量, 使数量加 1
-            //  这里根据我们的条件来查询, 得到的仅仅只能是一个数据
-            //  这里的购物车对象, 直接使用上面我们创建的购物车
-            shoppingCart = shoppingCartList.get(0);
-            shoppingCart.setNumber(shoppingCart.getNumber() + 1);
-            shoppingCartMapper.updateNumberById(shoppingCart);
-        } else {
-            //  数据未存在购物车, 数量为 1
-
-            //  判断当前添加到购物车的是菜品还是套餐
-            Long dishId = shoppingCartDTO.getDishId();
-
-            if (dishId != null) {
-                //  添加的数据为菜品
-                Dish dish = dishMapper.getById(dishId);
-
-                //  设置对应的属性
-                shoppingCart.setName(dish.getName());
-                shoppingCart.setImage(dish.getImage());
-                shoppingCart.setAmount(dish.getPrice());
-            } else {
-                //添加到购物车的是套餐
-                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
-                shoppingCart.setName(setmeal.getName());
-                shoppingCart.setImage(setmeal.getImage());
-                shoppingCart.setAmount(setmeal.getPrice());
-            }
-            //  公共数据的填充放到这里
-            shoppingCart.setNumber(1);
-            shoppingCart.setCreateTime(LocalDateTime.now());
-            shoppingCartMapper.insert(shoppingCart);
-        }
+        Long userId = BaseContext.getCurrentId();
+        shoppingCart.setUserId(userId);
 
+        //  补充商品信息和加入时间, 商品第一次加入购物车时保存
+        fillItemInfo(shoppingCart);
 
+        //  商品数量原子加 1, 不存在时插入, 不需要先查询商品是否已经在购物车中
+        shoppingCartStore.increment(userId, shoppingCart, 1);
     }
 
     /**
@@ -92,20 +65,14 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      * @return
      */
     public List<ShoppingCart> showShoppingCart() {
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                .userId(BaseContext.getCurrentId())
-                .build();
-        return shoppingCartMapper.list(shoppingCart);
+        return listWithCurrentInfo(BaseContext.getCurrentId());
     }
 
     /**
      * 清空购物车
      */
     public void cleanShoppingCart() {
-        ShoppingCart shoppingCart = ShoppingCart.builder()
-                .userId(BaseContext.getCurrentId())
-                .build();
-        shoppingCartMapper.deleteShoppingCart(shoppingCart);
+        shoppingCartStore.clear(BaseContext.getCurrentId());
     }
 
     /**
@@ -116,29 +83,144 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
         //  设置当前用户 id
-        shoppingCart.setId(BaseContext.getCurrentId());
-
-        //  根据前端传入的条件, 查询当前登陆用户的的购物车数据
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
-
-        /*
-            这里比较复杂的就是这了
-            总体下来就是要判断一下用户删除的商品数据是否就只剩下一个
-            如果剩余一个, 执行 delete 操作, 否者执行 update 操作
-            当然, 从数据库中查询用户购物车相关菜品的数据是不可避免的
-         */
-        //  其实这里一定会有数据的, 而且查到的有且仅有一个数据
-        if (shoppingCartList != null && shoppingCartList.size() > 0) {
-            shoppingCart = shoppingCartList.get(0);
-            if (shoppingCart.getNumber() > 1) {
-                //  当前数据大于 1, 执行 update 操作
-                shoppingCart.setNumber(shoppingCart.getNumber() - 1);
-                shoppingCartMapper.updateNumberById(shoppingCart);
+        Long userId = BaseContext.getCurrentId();
+        shoppingCart.setUserId(userId);
+
+        //  数量原子减 1, 减到 0 时直接删除商品
+        shoppingCartStore.increment(userId, shoppingCart, -1);
+    }
+
+    /**
+     * 批量修改购物车
+     * 同一个商品的多次操作先在内存中合并, 再一次性写入购物车
+     *
+     * @param operations
+     * @return 修改后的购物车
+     */
+    public List<ShoppingCart> batchUpdate(List<ShoppingCartOperationDTO> operations) {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_OPERATION_INVALID);
+        }
+        Long userId = BaseContext.getCurrentId();
+
+        //  按商品合并, 保持操作的先后顺序
+        Map<String, ShoppingCartChange> changes = new LinkedHashMap<>();
+        for (ShoppingCartOperationDTO operation : operations) {
+            ShoppingCart shoppingCart = ShoppingCart.builder()
+                    .dishId(operation.getDishId())
+                    .setmealId(operation.getSetmealId())
+                    .dishFlavor(operation.getDishFlavor())
+                    .build();
+            if ((shoppingCart.getDishId() == null) == (shoppingCart.getSetmealId() == null)) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_OPERATION_INVALID);
+            }
+            String key = ShoppingCartChange.itemKey(shoppingCart);
+            ShoppingCartChange change = changes.get(key);
+            int number = operation.getNumber() == null ? 1 : operation.getNumber();
+            //  单个商品的数量和每次的变化量都不能超过上限, 避免下单时计算份数和打包费溢出
+            if (number > MAX_ITEM_NUMBER) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_NUMBER_EXCEEDED);
+            }
+
+            if (ShoppingCartOperationDTO.SET.equals(operation.getType())) {
+                //  设置数量会覆盖之前对该商品的所有操作
+                if (number < 0) {
+                    throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_OPERATION_INVALID);
+                }
+                if (change == null) {
+                    change = new ShoppingCartChange(shoppingCart, true, number);
+                    changes.put(key, change);
+                } else {
+                    change.setAbsolute(true);
+                    change.setNumber(number);
+                }
+            } else if (ShoppingCartOperationDTO.ADD.equals(operation.getType())
+                    || ShoppingCartOperationDTO.SUB.equals(operation.getType())) {
+                if (number <= 0) {
+                    throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_OPERATION_INVALID);
+                }
+                int delta = ShoppingCartOperationDTO.ADD.equals(operation.getType()) ? number : -number;
+                if (change == null) {
+                    changes.put(key, new ShoppingCartChange(shoppingCart, false, delta));
+                } else {
+                    //  设置数量之后的加减直接累计到目标数量上, 不能小于 0
+                    int merged = change.getNumber() + delta;
+                    change.setNumber(change.isAbsolute() ? Math.max(merged, 0) : merged);
+                }
+                if (changes.get(key).getNumber() > MAX_ITEM_NUMBER) {
+                    throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_NUMBER_EXCEEDED);
+                }
             } else {
-                //  当前商品就剩一个了, 直接删除商品
-                shoppingCartMapper.deleteById(shoppingCart);
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_OPERATION_INVALID);
             }
         }
 
+        //  最终可能写入新商品的才需要补充商品信息
+        List<ShoppingCartChange> changeList = new ArrayList<>();
+        for (ShoppingCartChange change : changes.values()) {
+            if (!change.isAbsolute() && change.getNumber() == 0) {
+                continue;
+            }
+            if (change.getNumber() > 0) {
+                fillItemInfo(change.getItem());
+            }
+            changeList.add(change);
+        }
+
+        if (!changeList.isEmpty()) {
+            shoppingCartStore.applyAll(userId, changeList);
+        }
+        return listWithCurrentInfo(userId);
+    }
+
+    /**
+     * 查询购物车, 名称, 图片, 单价以菜品或套餐当前的数据为准
+     * 购物车中保存的是加入时的单价, 商家改价后如果直接返回, 前端算出的金额和下单时服务端计算的金额对不上, 订单会一直提交失败
+     * 已经删除的商品保持原样返回, 下单时会提示商品不存在
+     *
+     * @param userId
+     * @return
+     */
+    private List<ShoppingCart> listWithCurrentInfo(Long userId) {
+        List<ShoppingCart> shoppingCarts = shoppingCartStore.list(userId);
+        for (ShoppingCart shoppingCart : shoppingCarts) {
+            catalogCache.refreshCartItem(shoppingCart);
+        }
+        return shoppingCarts;
+    }
+
+    /**
+     * 从本地缓存中读取商品信息, 补充名称、图片和单价, 以及加入购物车的时间
+     *
+     * @param shoppingCart
+     */
+    private void fillItemInfo(ShoppingCart shoppingCart) {
+        //  判断当前添加到购物车的是菜品还是套餐
+        Long dishId = shoppingCart.getDishId();
+
+        //  商品信息从本地缓存中读取, 不再查询数据库
+        if (dishId != null) {
+            //  添加的数据为菜品
+            Dish dish = catalogCache.getDish(dishId);
+            if (dish == null) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+            }
+
+            //  设置对应的属性
+            shoppingCart.setName(dish.getName());
+            shoppingCart.setImage(dish.getImage());
+            shoppingCart.setAmount(dish.getPrice());
+        } else {
+            //添加到购物车的是套餐
+            Setmeal setmeal = catalogCache.getSetmeal(shoppingCart.getSetmealId());
+            if (setmeal == null) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+            }
+            shoppingCart.setName(setmeal.getName());
+            shoppingCart.setImage(setmeal.getImage());
+            shoppingCart.setAmount(setmeal.getPrice());
+        }
+        //  公共数据的填充放到这里
+        shoppingCart.setCreateTime(LocalDateTime.now());
     }
 }
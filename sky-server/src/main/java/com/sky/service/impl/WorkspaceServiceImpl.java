@@ -1,12 +1,14 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 
 import com.sky.mapper.OrdersMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -15,10 +17,13 @@ import com.sky.vo.SetmealOverViewVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -27,11 +32,11 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     @Autowired
     private OrdersMapper orderMapper;
     @Autowired
-    private UserMapper userMapper;
-    @Autowired
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
 
 
     /**
@@ -49,50 +54,11 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.getByStatusAndOrderTime(map);
-
-        map.put("status", Orders.COMPLETED);
-        //营业额
-        Double turnover = orderMapper.getSumTurnover(map);
-        turnover = turnover == null? 0.0 : turnover;
-
-        //有效订单数
-        Integer validOrderCount = orderMapper.getByStatusAndOrderTime(map);
-
-        Double unitPrice = 0.0;
+        //  按自然日汇总, 历史日期读取每日汇总表, 今天实时统计
+        Map<LocalDate, DailyBusinessStats> dailyMap =
+                businessStatsService.getDailyStats(begin.toLocalDate(), end.toLocalDate());
 
-        Double orderCompletionRate = 0.0;
-
-        /*
-            这里咋一看不合理, 为什么 totalOrderCount 和 validOrderCount 有一个为 0
-            两个都不进行计算了...
-
-            但是, 我们要计算的是 订单完成率, 平均客单价
-            上面的这两个 totalOrderCount, validOrderCount 但凡有一个为 0, 这俩数值就没有意义
-
-         */
-        if(totalOrderCount != 0 && validOrderCount != 0){
-            //订单完成率
-            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
-            //平均客单价
-            unitPrice = turnover / validOrderCount;
-        }
-
-        //新增用户数
-        Integer newUsers = userMapper.getUserStatistics(map);
-
-        return BusinessDataVO.builder()
-                .turnover(turnover)
-                .validOrderCount(validOrderCount)
-                .orderCompletionRate(orderCompletionRate)
-                .unitPrice(unitPrice)
-                .newUsers(newUsers)
-                .build();
+        return businessStatsService.summarize(dailyMap.values());
     }
 
 
@@ -102,28 +68,26 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        //按状态分组统计今日订单数量, 一次查询得到所有状态
+        List<OrderStatusCountDTO> statusCountList =
+                orderMapper.countGroupByStatus(LocalDateTime.now().with(LocalTime.MIN), null);
+        Map<Integer, Integer> statusCountMap = statusCountList.stream()
+                .collect(Collectors.toMap(OrderStatusCountDTO::getStatus, OrderStatusCountDTO::getCount));
 
         //待接单
-        Integer waitingOrders = orderMapper.getByStatusAndOrderTime(map);
+        Integer waitingOrders = statusCountMap.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.getByStatusAndOrderTime(map);
+        Integer deliveredOrders = statusCountMap.getOrDefault(Orders.CONFIRMED, 0);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.getByStatusAndOrderTime(map);
+        Integer completedOrders = statusCountMap.getOrDefault(Orders.COMPLETED, 0);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.getByStatusAndOrderTime(map);
+        Integer cancelledOrders = statusCountMap.getOrDefault(Orders.CANCELLED, 0);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.getByStatusAndOrderTime(map);
+        Integer allOrders = statusCountMap.values().stream().mapToInt(Integer::intValue).sum();
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
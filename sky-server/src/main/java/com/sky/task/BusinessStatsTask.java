@@ -0,0 +1,47 @@
+package com.sky.task;
+
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * 每日营业数据汇总定时任务
+ */
+@Component
+@Slf4j
+public class BusinessStatsTask {
+    @Autowired
+    private BusinessStatsService businessStatsService;
+
+    //  每次向前重新统计的天数, 用来修正下单后隔天才完成或取消的订单
+    @Value("${sky.stats.finalize-days:3}")
+    private int finalizeDays;
+
+    //  向前检查并补写汇总表中缺失日期的天数
+    @Value("${sky.stats.backfill-days:365}")
+    private int backfillDays;
+
+    /**
+     * 重新统计最近几天的营业数据, 写入汇总表, 并补写更早的日期中汇总表缺失的数据
+     * 放在 1 点处理派送中订单之后执行, 保证昨天的订单状态已经确定
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void finalizeDailyStats() {
+        log.info("重新统计每日营业数据: {}", new Date());
+
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(finalizeDays - 1);
+        businessStatsService.refresh(begin, end);
+
+        int days = businessStatsService.backfill(end.minusDays(backfillDays - 1), end);
+        if (days > 0) {
+            log.info("补写每日营业数据汇总: {} 天", days);
+        }
+    }
+}
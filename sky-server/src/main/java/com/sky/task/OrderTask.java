@@ -2,14 +2,18 @@ package com.sky.task;
 
 import com.sky.entity.Orders;
 import com.sky.mapper.OrdersMapper;
+import com.sky.service.BusinessStatsService;
+import com.sky.service.PaymentTimeoutService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @Author: dy
@@ -19,13 +23,20 @@ import java.util.List;
 @Component
 @Slf4j
 public class OrderTask {
+
+    //  每批处理的订单数量, 积压很多订单时分批更新, 避免一条语句锁住太多行
+    private static final int CHUNK_SIZE = 500;
+
     @Autowired
     private OrdersMapper ordersMapper;
+    @Autowired
+    private BusinessStatsService businessStatsService;
 
     /**
      * 处理支付超时订单
+     * 超时订单平时由 PaymentTimeoutTask 的延时队列及时取消, 这里只是兜底, 降低为每 30 分钟执行一次
      */
-    @Scheduled(cron = "0 * * * * ?")
+    @Scheduled(cron = "0 0/30 * * * ?")
     public void processTimeoutOrder() {
         log.info("处理支付超时订单: {}", new Date());
 
@@ -39,18 +50,25 @@ public class OrderTask {
          */
 
         //  获取当前时间之前的 15min 的时间 time, 在 time 之前的订单都为超时订单
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
-        List<Orders> ordersList = ordersMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
-
-        //  遍历之前先判断是否为空, 这是个好习惯
-        if (ordersList != null && ordersList.size() > 0) {
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelTime(LocalDateTime.now());
-                orders.setCancelReason("订单超时, 自动取消");
-                ordersMapper.update(orders);
+        LocalDateTime time = LocalDateTime.now().plusMinutes(-PaymentTimeoutService.PAYMENT_TIMEOUT_MINUTES);
+
+        Orders orders = Orders.builder()
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时, 自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+
+        //  每次取出一批超时订单, 用一条 update 批量取消, 直到没有超时订单为止
+        List<Orders> ordersList;
+        do {
+            ordersList = ordersMapper.getBatchByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time, CHUNK_SIZE);
+            if (ordersList.isEmpty()) {
+                break;
             }
-        }
+            List<Long> ids = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+            int cancelled = ordersMapper.updateStatusByIds(ids, Orders.PENDING_PAYMENT, orders);
+            log.info("批量取消超时订单: {} 个", cancelled);
+        } while (ordersList.size() == CHUNK_SIZE);
 
     }
 
@@ -59,14 +77,33 @@ public class OrderTask {
         log.info("处理派送中订单: {}", new Date());
         //  获取临界时间
         LocalDateTime time = LocalDateTime.now().plusMinutes(-60);
-        List<Orders> ordersList = ordersMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
 
-        if (ordersList != null && ordersList.size() > 0) {
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                ordersMapper.update(orders);
+        Orders orders = Orders.builder()
+                .status(Orders.COMPLETED)
+                .deliveryTime(LocalDateTime.now())
+                .build();
+
+        //  分批将派送中的订单改为已完成
+        List<Orders> ordersList;
+        do {
+            ordersList = ordersMapper.getBatchByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time, CHUNK_SIZE);
+            if (ordersList.isEmpty()) {
+                break;
+            }
+            List<Long> ids = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+            int completed = ordersMapper.updateStatusByIds(ids, Orders.DELIVERY_IN_PROGRESS, orders);
+            if (completed == ordersList.size()) {
+                //  按下单日期累加有效订单数和营业额
+                businessStatsService.recordOrdersCompleted(ordersList);
+            } else {
+                //  部分订单已经被其他实例或商家完成, 并且已经累加过, 不知道是哪些订单
+                //  这时不再累加, 直接按订单表重新统计这批订单涉及的日期
+                LocalDate begin = ordersList.stream().map(o -> o.getOrderTime().toLocalDate()).min(LocalDate::compareTo).get();
+                LocalDate end = ordersList.stream().map(o -> o.getOrderTime().toLocalDate()).max(LocalDate::compareTo).get();
+                businessStatsService.refresh(begin, end);
             }
-        }
+            log.info("批量完成派送中订单: {} 个", completed);
+        } while (ordersList.size() == CHUNK_SIZE);
     }
 
 
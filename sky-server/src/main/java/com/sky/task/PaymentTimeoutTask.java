@@ -0,0 +1,73 @@
+package com.sky.task;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrdersMapper;
+import com.sky.service.PaymentTimeoutService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 处理支付超时订单的延时队列
+ * <p>
+ * 每秒从 PaymentTimeoutService 取出已经到期的订单批量取消
+ * 启动时还会从数据库中补齐待付款订单
+ */
+@Component
+@Slf4j
+public class PaymentTimeoutTask {
+
+    //  每次最多处理的到期订单数量
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private PaymentTimeoutService paymentTimeoutService;
+    @Autowired
+    private OrdersMapper ordersMapper;
+
+    /**
+     * 批量取消已经到期的未支付订单
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void processExpired() {
+        List<Long> ids;
+        do {
+            ids = paymentTimeoutService.getExpired(BATCH_SIZE);
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            //  只取消仍处于待付款状态的订单, 已支付或已取消的订单不受影响
+            //  多个实例同时处理同一批订单也不会重复取消
+            Orders orders = Orders.builder()
+                    .status(Orders.CANCELLED)
+                    .cancelReason("订单超时, 自动取消")
+                    .cancelTime(LocalDateTime.now())
+                    .build();
+            int cancelled = ordersMapper.updateStatusByIds(ids, Orders.PENDING_PAYMENT, orders);
+            paymentTimeoutService.removeAll(ids);
+
+            log.info("处理支付超时订单: 到期 {} 个, 取消 {} 个", ids.size(), cancelled);
+        } while (ids.size() == BATCH_SIZE);
+    }
+
+    /**
+     * 启动时把数据库中的待付款订单重新放入延时队列, 防止 Redis 数据丢失导致订单无法取消
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<Orders> ordersList = ordersMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, LocalDateTime.now());
+        if (ordersList != null && ordersList.size() > 0) {
+            for (Orders orders : ordersList) {
+                paymentTimeoutService.register(orders);
+            }
+            log.info("恢复支付超时延时队列: {} 个待付款订单", ordersList.size());
+        }
+    }
+}
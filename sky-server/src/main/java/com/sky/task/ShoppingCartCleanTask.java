@@ -0,0 +1,108 @@
+package com.sky.task;
+
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.ShoppingCartProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 清理数据库中的购物车数据
+ * 购物车只在下单和清空时删除, 没有下单就离开的用户会一直留在表中, 这里定期删除废弃的购物车, 并合并重复的商品记录
+ */
+@Component
+@Slf4j
+public class ShoppingCartCleanTask {
+
+    //  每批处理的数量, 分批删除, 避免一条语句锁住太多行
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 每天凌晨 3 点清理一次
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void clean() {
+        log.info("清理购物车: {}", new Date());
+        long start = System.currentTimeMillis();
+
+        int merged = mergeDuplicateItems();
+        int purged = purgeAbandonedCarts();
+
+        log.info("清理购物车完成: 合并重复记录 {} 条, 删除废弃购物车记录 {} 条, 耗时 {} ms",
+                merged, purged, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 合并同一用户同一商品的重复记录, 保留 id 最小的一条并累加数量
+     * 添加 uk_user_item 唯一索引之前产生的重复记录由这里合并
+     *
+     * @return 删除的行数
+     */
+    private int mergeDuplicateItems() {
+        int total = 0;
+        List<ShoppingCart> duplicates;
+        do {
+            duplicates = shoppingCartMapper.getDuplicateItems(CHUNK_SIZE);
+            if (duplicates.isEmpty()) {
+                break;
+            }
+            //  一批商品在一个事务中合并, 数量的累加和多余记录的删除同时生效
+            //  先锁住商品的全部记录再累加数量, 合并期间用户的加购会等待, 不会丢失
+            List<ShoppingCart> chunk = duplicates;
+            Integer deleted = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (ShoppingCart item : chunk) {
+                    List<ShoppingCart> records = shoppingCartMapper.getItemForUpdate(item);
+                    if (records.size() < 2) {
+                        continue;
+                    }
+                    ShoppingCart keep = records.get(0);
+                    keep.setNumber(records.stream().mapToInt(ShoppingCart::getNumber).sum());
+                    shoppingCartMapper.updateNumberById(keep);
+                    rows += shoppingCartMapper.deleteDuplicates(keep);
+                }
+                return rows;
+            });
+            total += deleted == null ? 0 : deleted;
+            log.info("合并重复的购物车商品: {} 个", duplicates.size());
+        } while (duplicates.size() == CHUNK_SIZE);
+        return total;
+    }
+
+    /**
+     * 删除超过 abandonDays 天没有修改的购物车
+     * abandonDays 大于 Redis 中购物车的过期时间 ttlDays, 这些购物车在 Redis 中通常已经过期
+     *
+     * @return 删除的行数
+     */
+    private int purgeAbandonedCarts() {
+        LocalDateTime time = LocalDateTime.now().plusDays(-shoppingCartProperties.getAbandonDays());
+
+        int total = 0;
+        List<Long> userIds;
+        do {
+            userIds = shoppingCartMapper.getIdleUserIds(time, CHUNK_SIZE);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            int deleted = shoppingCartMapper.deleteIdleByUserIds(userIds, time);
+            total += deleted;
+            log.info("删除废弃的购物车: {} 个用户, {} 条记录", userIds.size(), deleted);
+        } while (userIds.size() == CHUNK_SIZE);
+        return total;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sky.task;
+
+import com.sky.cart.RedisShoppingCartStore;
+import com.sky.properties.ShoppingCartProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将 Redis 中修改过的购物车批量写回数据库
+ */
+@Component
+@ConditionalOnProperty(name = "sky.shopping-cart.store", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class ShoppingCartSyncTask {
+
+    //  领取后超过这个时间仍未写回的用户, 视为同步途中实例退出, 放回待同步集合
+    private static final long SYNC_TIMEOUT_MILLIS = 60_000;
+
+    @Autowired
+    private RedisShoppingCartStore redisShoppingCartStore;
+    @Autowired
+    private ShoppingCartProperties shoppingCartProperties;
+
+    /**
+     * 每 5 秒同步一次
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void sync() {
+        long reclaimed = redisShoppingCartStore.reclaimStaleSyncs(SYNC_TIMEOUT_MILLIS);
+        if (reclaimed > 0) {
+            log.warn("购物车同步超时, 重新同步: {} 个用户", reclaimed);
+        }
+
+        int batchSize = shoppingCartProperties.getSyncBatchSize();
+        List<String> failed = new ArrayList<>();
+        List<String> userIds;
+        do {
+            //  领取的同时记入同步中集合, 多个实例不会重复同步; 同步期间再次修改的用户会重新加入待同步集合
+            userIds = redisShoppingCartStore.claimDirtyUsers(batchSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+
+            for (String userId : userIds) {
+                try {
+                    redisShoppingCartStore.syncToDatabase(Long.valueOf(userId));
+                    //  写回成功后才从同步中集合移除
+                    redisShoppingCartStore.finishSync(userId);
+                } catch (RuntimeException e) {
+                    log.error("购物车同步到数据库失败: userId = {}", userId, e);
+                    failed.add(userId);
+                }
+            }
+            log.info("购物车同步到数据库: {} 个用户", userIds.size());
+        } while (userIds.size() == batchSize);
+
+        //  同步失败的用户放回集合, 下次再同步
+        redisShoppingCartStore.releaseSync(failed);
+    }
+}
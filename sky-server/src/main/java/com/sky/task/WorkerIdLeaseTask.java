@@ -0,0 +1,105 @@
+package com.sky.task;
+
+import com.sky.utils.SnowflakeOrderNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器机器 id 的租约
+ * <p>
+ * 没有配置 sky.order-number.worker-id 时, 启动时在 Redis 中抢占一个空闲的机器 id (order:worker_id:机器id),
+ * 租约 60 秒, 每 10 秒续约一次, 正常关闭时释放; 实例宕机后租约过期, 机器 id 可以被其他实例复用
+ * 保证同时运行的实例不会使用相同的机器 id, 生成重复的订单号
+ */
+@Component
+@Slf4j
+public class WorkerIdLeaseTask {
+
+    private static final String KEY_PREFIX = "order:worker_id:";
+    //  下一次从哪个机器 id 开始尝试, 让各个实例错开, 减少冲突
+    private static final String NEXT_KEY = "order:worker_id_next";
+    private static final long LEASE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    //  租约仍属于自己时续期; 租约已经过期 (例如 Redis 重启) 时重新占用
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('get', KEYS[1]) " +
+            "if owner == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+            "if not owner then redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end " +
+            "return 0", Long.class);
+
+    //  只释放自己持有的租约
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //  当前实例的标识, 作为租约的值
+    private final String owner = UUID.randomUUID().toString();
+
+    //  持有的机器 id, 使用配置的机器 id 时为 null
+    private volatile Long workerId;
+
+    /**
+     * 抢占一个空闲的机器 id, 全部被占用时启动失败
+     *
+     * @return
+     */
+    public synchronized long acquire() {
+        long count = SnowflakeOrderNumberGenerator.MAX_WORKER_ID + 1;
+        Long next = stringRedisTemplate.opsForValue().increment(NEXT_KEY);
+        long start = next == null ? 0 : next;
+        for (long i = 0; i < count; i++) {
+            long id = Math.floorMod(start + i, count);
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(KEY_PREFIX + id, owner, LEASE_MILLIS, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                workerId = id;
+                log.info("从 Redis 获取订单号机器 id: {}", id);
+                return id;
+            }
+        }
+        throw new IllegalStateException("没有空闲的订单号机器 id, 请配置 sky.order-number.worker-id");
+    }
+
+    /**
+     * 续约
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void renew() {
+        Long id = workerId;
+        if (id == null) {
+            return;
+        }
+        try {
+            Long result = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(KEY_PREFIX + id),
+                    owner, String.valueOf(LEASE_MILLIS));
+            if (result == null || result == 0) {
+                log.error("订单号机器 id {} 的租约已被其他实例占用, 可能生成重复的订单号", id);
+            }
+        } catch (Exception e) {
+            log.error("订单号机器 id {} 续约失败", id, e);
+        }
+    }
+
+    /**
+     * 关闭时释放租约
+     */
+    @PreDestroy
+    public void release() {
+        Long id = workerId;
+        if (id != null) {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(KEY_PREFIX + id), owner);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- 每日营业数据汇总表
+-- 建表后无需手动初始化, 报表查询到缺失的日期时会实时统计并补写, BusinessStatsTask 每天修正最近几天的数据
+create table if not exists daily_business_stats
+(
+    stat_date         date           not null primary key comment '统计日期',
+    order_count       int            not null default 0 comment '订单总数',
+    valid_order_count int            not null default 0 comment '有效订单数',
+    turnover          decimal(12, 2) not null default 0 comment '营业额',
+    new_users         int            not null default 0 comment '新增用户数',
+    update_time       datetime comment '最后更新时间'
+) comment '每日营业数据汇总';
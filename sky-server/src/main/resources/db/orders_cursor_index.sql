@@ -0,0 +1,4 @@
+-- 订单游标分页 (按 order_time, id 倒序) 使用的索引
+-- 用户端按用户查询, 管理端按状态查询, 没有这些索引时每一页都要扫描并排序整张订单表
+create index idx_orders_user_time on orders (user_id, order_time, id);
+create index idx_orders_status_time on orders (status, order_time, id);
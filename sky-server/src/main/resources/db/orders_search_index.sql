@@ -0,0 +1,7 @@
+-- 订单号前缀检索和手机号尾号检索使用的索引 (OrdersPageQueryDTO.indexed = true)
+-- 执行前 indexed 检索不可用, 默认的包含匹配不依赖这些索引
+create index idx_orders_number on orders (number);
+create index idx_orders_phone on orders (phone);
+alter table orders
+    add column phone_reversed varchar(11) as (reverse(phone)) stored,
+    add index idx_orders_phone_reversed (phone_reversed);
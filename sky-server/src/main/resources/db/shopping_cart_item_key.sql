@@ -0,0 +1,23 @@
+-- 购物车中同一个商品只能有一条记录, 加购时使用 insert ... on duplicate key update 累加数量
+-- dish_id, dish_flavor, setmeal_id 可能为 null, 而 null 在唯一索引中互不相等, 所以通过生成列组合成商品标识
+-- sky.shopping-cart.store=mysql 时启动前必须执行, 否则启动失败
+
+-- 1. 合并已有的重复记录: 数量累加到 id 最小的一条, 再删除其余记录
+update shopping_cart a
+    join (select min(id) id, sum(number) number
+          from shopping_cart
+          group by user_id, dish_id, dish_flavor, setmeal_id
+          having count(*) > 1) b on a.id = b.id
+set a.number = b.number;
+
+delete a
+from shopping_cart a
+         join shopping_cart b
+              on a.user_id = b.user_id and a.dish_id <=> b.dish_id and a.dish_flavor <=> b.dish_flavor
+                  and a.setmeal_id <=> b.setmeal_id and a.id > b.id;
+
+-- 2. 添加商品标识和唯一索引
+alter table shopping_cart
+    add column item_key varchar(128) as
+        (concat_ws(':', ifnull(dish_id, ''), ifnull(dish_flavor, ''), ifnull(setmeal_id, ''))) stored,
+    add unique index uk_user_item (user_id, item_key);
@@ -0,0 +1,7 @@
+-- 购物车最后一次修改的时间, ShoppingCartCleanTask 据此判断购物车是否废弃
+-- 加入时间 create_time 在修改数量时不会变化, 不能用来判断购物车是否还在使用
+alter table shopping_cart
+    add column update_time datetime comment '最后修改时间';
+
+-- 已有记录从执行时开始计时, create_time 为空的记录也不会被立即删除
+update shopping_cart set update_time = now() where update_time is null;
@@ -0,0 +1,166 @@
+package com.sky.config;
+
+import com.sky.entity.DishFlavor;
+import com.sky.entity.Setmeal;
+import com.sky.properties.RedisCodecProperties;
+import com.sky.vo.DishVO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Redis 值序列化: Smile 与 Java 原生序列化的体积和编解码耗时对比
+ * 数据为一个分类下的菜品缓存 (dish_分类id) 和套餐缓存 (setMealCache), 与线上缓存的对象结构相同
+ */
+@Slf4j
+public class RedisValueSerializerTest {
+
+    private static final int WARM_UP = 5_000;
+    private static final int ROUNDS = 20_000;
+
+    //  菜品名称, 价格, 描述, 参考苍穹外卖的初始菜品数据
+    private static final String[][] DISHES = {
+            {"王老吉", "6.00", "王老吉凉茶"},
+            {"北冰洋", "4.00", "还是小时候的味道"},
+            {"雪花啤酒", "4.00", "清爽口感"},
+            {"草鱼2斤", "68.00", "草鱼中含有丰富的不饱和脂肪酸, 对血液循环有利"},
+            {"江团鱼2斤", "119.00", "江团鱼肉质细嫩, 没有细刺"},
+            {"鮰鱼2斤", "72.00", "鮰鱼是一种营养价值极高的鱼类"},
+            {"鸡蛋汤", "4.00", "鸡蛋汤"},
+            {"平菇豆腐汤", "6.00", "平菇豆腐汤"},
+            {"米饭", "2.00", "精选五常大米"},
+            {"馒头", "1.00", "优质面粉"},
+            {"老坛酸菜鱼", "56.00", "原料: 汤, 草鱼, 酸菜"},
+            {"经典酸菜鮰鱼", "66.00", "酸菜鮰鱼"},
+    };
+
+    @Test
+    public void compareWithJdkSerializer() {
+        RedisCodecProperties redisCodecProperties = new RedisCodecProperties();
+        RedisSerializer<Object> smileSerializer = new RedisConfiguration().redisValueSerializer(redisCodecProperties);
+        RedisSerializer<Object> jdkSerializer = new JdkSerializationRedisSerializer();
+
+        List<DishVO> dishes = buildDishes();
+        List<Setmeal> setmeals = buildSetmeals();
+
+        //  两种序列化方式都能还原出原来的对象
+        assertEquals(dishes, smileSerializer.deserialize(smileSerializer.serialize(dishes)));
+        assertEquals(dishes, jdkSerializer.deserialize(jdkSerializer.serialize(dishes)));
+        assertEquals(setmeals, smileSerializer.deserialize(smileSerializer.serialize(setmeals)));
+        assertEquals(setmeals, jdkSerializer.deserialize(jdkSerializer.serialize(setmeals)));
+
+        //  Smile 的体积必须比 Java 原生序列化小
+        assertTrue(smileSerializer.serialize(dishes).length < jdkSerializer.serialize(dishes).length);
+        assertTrue(smileSerializer.serialize(setmeals).length < jdkSerializer.serialize(setmeals).length);
+
+        report("菜品缓存 List<DishVO>", dishes, smileSerializer, jdkSerializer);
+        report("套餐缓存 List<Setmeal>", setmeals, smileSerializer, jdkSerializer);
+    }
+
+    @Test
+    public void readsValuesWrittenWithJdkSerializer() {
+        RedisSerializer<Object> smileSerializer = new RedisConfiguration().redisValueSerializer(new RedisCodecProperties());
+        List<DishVO> dishes = buildDishes();
+
+        //  切换序列化方式之前写入 Redis 的数据仍然可以读取
+        byte[] bytes = new JdkSerializationRedisSerializer().serialize(dishes);
+        assertEquals(dishes, smileSerializer.deserialize(bytes));
+    }
+
+    @Test
+    public void rejectsClassesOutsideTheProject() {
+        RedisSerializer<Object> smileSerializer = new RedisConfiguration().redisValueSerializer(new RedisCodecProperties());
+
+        //  Redis 中被写入了项目以外的类名, 不能按这个类实例化
+        byte[] bytes = "[\"java.io.File\",\"/tmp\"]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(SerializationException.class, () -> smileSerializer.deserialize(bytes));
+    }
+
+    private void report(String name, Object value, RedisSerializer<Object> smileSerializer, RedisSerializer<Object> jdkSerializer) {
+        log.info("{}: smile {} 字节, 编码 {} ns, 解码 {} ns; jdk {} 字节, 编码 {} ns, 解码 {} ns", name,
+                smileSerializer.serialize(value).length, encodeNanos(smileSerializer, value), decodeNanos(smileSerializer, value),
+                jdkSerializer.serialize(value).length, encodeNanos(jdkSerializer, value), decodeNanos(jdkSerializer, value));
+    }
+
+    private long encodeNanos(RedisSerializer<Object> serializer, Object value) {
+        for (int i = 0; i < WARM_UP; i++) {
+            serializer.serialize(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.serialize(value);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private long decodeNanos(RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        for (int i = 0; i < WARM_UP; i++) {
+            serializer.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.deserialize(bytes);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private List<DishVO> buildDishes() {
+        LocalDateTime updateTime = LocalDateTime.of(2023, 9, 1, 12, 0);
+        List<DishVO> dishes = new ArrayList<>();
+        for (int i = 0; i < DISHES.length; i++) {
+            long id = 46L + i;
+            List<DishFlavor> flavors = new ArrayList<>();
+            //  从数据库读出的每个字符串都是不同的对象, 这里用 new String 模拟, 避免 Java 原生序列化按引用复用相同的字符串
+            flavors.add(new DishFlavor(id * 2, id, new String("辣度"), new String("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]")));
+            flavors.add(new DishFlavor(id * 2 + 1, id, new String("忌口"), new String("[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]")));
+            dishes.add(DishVO.builder()
+                    .id(id)
+                    .name(new String(DISHES[i][0]))
+                    .categoryId(16L)
+                    .price(new BigDecimal(DISHES[i][1]))
+                    .image("https://sky-itcast.oss-cn-beijing.aliyuncs.com/" + UUID.nameUUIDFromBytes(DISHES[i][0].getBytes()) + ".png")
+                    .description(new String(DISHES[i][2]))
+                    .status(1)
+                    .updateTime(updateTime.plusMinutes(i))
+                    .categoryName(new String("酒水饮料"))
+                    .flavors(flavors)
+                    .build());
+        }
+        return dishes;
+    }
+
+    private List<Setmeal> buildSetmeals() {
+        LocalDateTime time = LocalDateTime.of(2023, 9, 1, 12, 0);
+        List<Setmeal> setmeals = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            setmeals.add(Setmeal.builder()
+                    .id(30L + i)
+                    .categoryId(13L)
+                    .name(new String("商务套餐" + (char) ('A' + i)))
+                    .price(new BigDecimal("58.00").add(BigDecimal.TEN.multiply(BigDecimal.valueOf(i))))
+                    .status(1)
+                    .description(new String("一荤一素一汤一饭"))
+                    .image("https://sky-itcast.oss-cn-beijing.aliyuncs.com/" + UUID.nameUUIDFromBytes(new byte[]{(byte) i}) + ".png")
+                    .createTime(time)
+                    .updateTime(time.plusDays(i))
+                    .createUser(1L)
+                    .updateUser(1L)
+                    .build());
+        }
+        return setmeals;
+    }
+}
@@ -0,0 +1,149 @@
+package com.sky.service.impl;
+
+import com.sky.cache.CatalogCache;
+import com.sky.cart.ShoppingCartStore;
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.AddressBook;
+import com.sky.entity.Dish;
+import com.sky.entity.Orders;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.AddressBookMapper;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrdersMapper;
+import com.sky.service.BusinessStatsService;
+import com.sky.service.PaymentTimeoutService;
+import com.sky.utils.SnowflakeOrderNumberGenerator;
+import com.sky.vo.OrderSubmitVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户下单: 订单金额和打包费由服务端计算, 与前端金额不一致时拒绝下单
+ * 数据库和 Redis 都用 mock 代替
+ */
+public class OrderServiceImplTest {
+
+    //  购物车: 菜品 20 元 x 2 + 菜品 15 元 x 1 + 套餐 50 元 x 1, 共 4 份
+    private static final BigDecimal EXPECTED_AMOUNT = new BigDecimal("115");   //  105 + 打包费 4 + 配送费 6
+    private static final int EXPECTED_PACK_AMOUNT = 4;
+
+    private OrderServiceImpl orderService;
+    private ShoppingCartStore shoppingCartStore;
+    private PaymentTimeoutService paymentTimeoutService;
+
+    @BeforeEach
+    public void setUp() {
+        AddressBookMapper addressBookMapper = mock(AddressBookMapper.class);
+        OrdersMapper orderMapper = mock(OrdersMapper.class);
+        OrderDetailMapper orderDetailMapper = mock(OrderDetailMapper.class);
+        shoppingCartStore = mock(ShoppingCartStore.class);
+        paymentTimeoutService = mock(PaymentTimeoutService.class);
+        CatalogCache catalogCache = mock(CatalogCache.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+        when(addressBookMapper.getById(anyLong())).thenReturn(AddressBook.builder()
+                .id(1L).phone("13800000000").detail("洛阳师范学院").consignee("张三").build());
+        when(catalogCache.getDish(1L)).thenReturn(Dish.builder().id(1L).name("鱼香肉丝").price(new BigDecimal("20")).build());
+        when(catalogCache.getDish(2L)).thenReturn(Dish.builder().id(2L).name("米饭").price(new BigDecimal("15")).build());
+        when(catalogCache.getSetmeal(1L)).thenReturn(Setmeal.builder().id(1L).name("双人套餐").price(new BigDecimal("50")).build());
+        when(catalogCache.refreshCartItem(any())).thenCallRealMethod();
+        //  下单时会修改购物车对象, 每次都返回新的列表
+        when(shoppingCartStore.list(anyLong())).thenAnswer(invocation -> new ArrayList<>(Arrays.asList(
+                ShoppingCart.builder().dishId(1L).number(2).build(),
+                ShoppingCart.builder().dishId(2L).number(1).build(),
+                ShoppingCart.builder().setmealId(1L).number(1).build())));
+        AtomicLong orderId = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<Orders>getArgument(0).setId(orderId.incrementAndGet());
+            return null;
+        }).when(orderMapper).insert(any());
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "addressBookMapper", addressBookMapper);
+        ReflectionTestUtils.setField(orderService, "orderMapper", orderMapper);
+        ReflectionTestUtils.setField(orderService, "orderDetailMapper", orderDetailMapper);
+        ReflectionTestUtils.setField(orderService, "shoppingCartStore", shoppingCartStore);
+        ReflectionTestUtils.setField(orderService, "catalogCache", catalogCache);
+        ReflectionTestUtils.setField(orderService, "businessStatsService", mock(BusinessStatsService.class));
+        ReflectionTestUtils.setField(orderService, "paymentTimeoutService", paymentTimeoutService);
+        ReflectionTestUtils.setField(orderService, "orderNumberGenerator", new SnowflakeOrderNumberGenerator(1));
+        ReflectionTestUtils.setField(orderService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(orderService, "deliveryFee", new BigDecimal("6"));
+        ReflectionTestUtils.setField(orderService, "packFee", 1);
+    }
+
+    @Test
+    public void computesAmountServerSide() {
+        BaseContext.setCurrentId(1L);
+        try {
+            OrderSubmitVO vo = orderService.submitOrder(submitDTO(EXPECTED_AMOUNT, EXPECTED_PACK_AMOUNT));
+            assertEquals(0, EXPECTED_AMOUNT.compareTo(vo.getOrderAmount()));
+            //  前端没有传金额时也按服务端计算的金额下单
+            vo = orderService.submitOrder(submitDTO(null, null));
+            assertEquals(0, EXPECTED_AMOUNT.compareTo(vo.getOrderAmount()));
+        } finally {
+            BaseContext.removeCurrentId();
+        }
+    }
+
+    @Test
+    public void rejectsChangedAmount() {
+        BaseContext.setCurrentId(1L);
+        try {
+            //  前端展示的金额和实际金额不一致
+            assertThrows(OrderBusinessException.class,
+                    () -> orderService.submitOrder(submitDTO(new BigDecimal("110"), EXPECTED_PACK_AMOUNT)));
+            //  前端传来的打包费不对
+            assertThrows(OrderBusinessException.class,
+                    () -> orderService.submitOrder(submitDTO(EXPECTED_AMOUNT, 0)));
+        } finally {
+            BaseContext.removeCurrentId();
+        }
+    }
+
+    @Test
+    public void committedOrderSurvivesRedisFailure() {
+        BaseContext.setCurrentId(1L);
+        try {
+            //  订单已经提交后登记支付截止时间失败, 不能让用户看到下单失败, 购物车仍然要清空
+            doThrow(new RuntimeException("redis down")).when(paymentTimeoutService).register(any());
+            OrderSubmitVO vo = orderService.submitOrder(submitDTO(EXPECTED_AMOUNT, EXPECTED_PACK_AMOUNT));
+            assertNotNull(vo.getId());
+            verify(shoppingCartStore).clear(1L);
+        } finally {
+            BaseContext.removeCurrentId();
+        }
+    }
+
+    private static OrdersSubmitDTO submitDTO(BigDecimal amount, Integer packAmount) {
+        OrdersSubmitDTO ordersSubmitDTO = new OrdersSubmitDTO();
+        ordersSubmitDTO.setAddressBookId(1L);
+        ordersSubmitDTO.setPayMethod(1);
+        ordersSubmitDTO.setAmount(amount);
+        ordersSubmitDTO.setPackAmount(packAmount);
+        return ordersSubmitDTO;
+    }
+}